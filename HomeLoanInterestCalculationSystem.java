@@ -1,274 +1,4470 @@
+package homeloan;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+
+
+interface LoanCalculator {
+    double calculateMonthlyPayment(double loanAmount, double interestRate, int tenureYears);
+    double calculateTotalInterest(double loanAmount, double interestRate, int tenureYears);
+    List<String> generateAmortizationSchedule(double loanAmount, double interestRate, int tenureYears);
+    AmortizationSchedule fillAmortizationSchedule(double loanAmount, double interestRate, int tenureYears, AmortizationSchedule schedule);
+
+    default void quote(LoanDetails loan) {
+        loan.monthlyPayment = calculateMonthlyPayment(loan.loanAmount, loan.interestRate, loan.tenureYears);
+        loan.totalInterest = calculateTotalInterest(loan.loanAmount, loan.interestRate, loan.tenureYears);
+    }
+
+    // Quotes the loan and fills its schedule together; calculators that can share the work between the two override it.
+    default AmortizationSchedule quote(LoanDetails loan, AmortizationSchedule schedule) {
+        quote(loan);
+        return fillAmortizationSchedule(loan.loanAmount, loan.interestRate, loan.tenureYears, schedule);
+    }
+
+    default BatchQuoteResult calculateBatch(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        BatchQuoteResult result = new BatchQuoteResult(BatchQuoteResult.checkLengths(loanAmounts, interestRates, tenureYears));
+        BatchQuoteResult.forEachChunk(result.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result.monthlyPayments[i] = calculateMonthlyPayment(loanAmounts[i], interestRates[i], tenureYears[i]);
+                result.totalInterests[i] = calculateTotalInterest(loanAmounts[i], interestRates[i], tenureYears[i]);
+            }
+        });
+        return result;
+    }
+
+    default EmiGrid calculateGrid(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        return EmiGrid.compute(loanAmounts, interestRates, tenureYears);
+    }
+
+    // Largest principal whose EMI does not exceed monthlyPayment: the annuity factor inverted in closed form.
+    default double maxAffordableLoan(double monthlyPayment, double interestRate, int tenureYears) {
+        return monthlyPayment / AnnuityFactorCache.computeFactor(interestRate, tenureYears);
+    }
+
+    default int tenureMonthsForPayment(double loanAmount, double interestRate, double monthlyPayment) {
+        return EmiGrid.tenureMonthsForPayment(loanAmount, interestRate, monthlyPayment);
+    }
+
+    default double rateForPayment(double loanAmount, double monthlyPayment, int tenureYears) {
+        return EmiGrid.rateForPayment(loanAmount, monthlyPayment, tenureYears);
+    }
+}
+
+// EMIs for every rate x tenure x amount combination, stored flat with amount varying fastest.
+class EmiGrid {
+    static final int MAX_NEWTON_STEPS = 50;
+    static final double RATE_TOLERANCE = 1e-12;
+
+    final double[] loanAmounts;
+    final double[] interestRates;
+    final int[] tenureYears;
+    final double[] factors;
+    final double[] monthlyPayments;
+    final double[] totalInterests;
+
+    private EmiGrid(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        for (int tenure : tenureYears) {
+            if (tenure <= 0) {
+                throw new IllegalArgumentException("Tenure must be positive: " + tenure);
+            }
+        }
+        this.loanAmounts = loanAmounts;
+        this.interestRates = interestRates;
+        this.tenureYears = tenureYears;
+        this.factors = new double[interestRates.length * tenureYears.length];
+        this.monthlyPayments = new double[factors.length * loanAmounts.length];
+        this.totalInterests = new double[monthlyPayments.length];
+    }
+
+    public double factor(int rateIndex, int tenureIndex) {
+        return factors[rateIndex * tenureYears.length + tenureIndex];
+    }
+
+    public double monthlyPayment(int rateIndex, int tenureIndex, int amountIndex) {
+        return monthlyPayments[(rateIndex * tenureYears.length + tenureIndex) * loanAmounts.length + amountIndex];
+    }
+
+    public double totalInterest(int rateIndex, int tenureIndex, int amountIndex) {
+        return totalInterests[(rateIndex * tenureYears.length + tenureIndex) * loanAmounts.length + amountIndex];
+    }
+
+    // One Math.pow per rate: (1 + r)^12 is raised year by year across the tenures in ascending order, and each
+    // amount is a multiple of the shared factor since the EMI is linear in principal.
+    static EmiGrid compute(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        EmiGrid grid = new EmiGrid(loanAmounts.clone(), interestRates.clone(), tenureYears.clone());
+        int[] byTenure = IntStream.range(0, tenureYears.length).boxed()
+                .sorted(Comparator.comparingInt(t -> tenureYears[t]))
+                .mapToInt(Integer::intValue).toArray();
+        int tenures = tenureYears.length;
+        int amounts = loanAmounts.length;
+        for (int r = 0; r < interestRates.length; r++) {
+            double monthlyRate = interestRates[r] / 12 / 100;
+            double yearlyGrowth = Math.pow(1 + monthlyRate, 12);
+            double growth = 1;
+            int grownYears = 0;
+            for (int t : byTenure) {
+                int years = tenureYears[t];
+                while (grownYears < years) {
+                    growth *= yearlyGrowth;
+                    grownYears++;
+                }
+                double factor = AnnuityFactorCache.periodFactor(monthlyRate, years * 12, 1 / growth);
+                int cell = r * tenures + t;
+                grid.factors[cell] = factor;
+                int base = cell * amounts;
+                int months = years * 12;
+                for (int a = 0; a < amounts; a++) {
+                    double payment = loanAmounts[a] * factor;
+                    grid.monthlyPayments[base + a] = payment;
+                    grid.totalInterests[base + a] = payment * months - loanAmounts[a];
+                }
+            }
+        }
+        return grid;
+    }
+
+    // Cell by cell through the calculator's own quote, for calculators whose EMI is not one shared factor times the
+    // principal: products with changing installments and paisa-rounded fixed point. factor() then holds the first
+    // amount's EMI per unit of principal.
+    static EmiGrid tabulate(double[] loanAmounts, double[] interestRates, int[] tenureYears, LoanCalculator calculator) {
+        EmiGrid grid = new EmiGrid(loanAmounts.clone(), interestRates.clone(), tenureYears.clone());
+        int tenures = tenureYears.length;
+        int amounts = loanAmounts.length;
+        LoanDetails cell = new LoanDetails(0, 0, 0, 0);
+        for (int r = 0; r < interestRates.length; r++) {
+            for (int t = 0; t < tenures; t++) {
+                int base = (r * tenures + t) * amounts;
+                for (int a = 0; a < amounts; a++) {
+                    cell.loanAmount = loanAmounts[a];
+                    cell.interestRate = interestRates[r];
+                    cell.tenureYears = tenureYears[t];
+                    calculator.quote(cell);
+                    grid.monthlyPayments[base + a] = cell.monthlyPayment;
+                    grid.totalInterests[base + a] = cell.totalInterest;
+                }
+                grid.factors[r * tenures + t] = amounts == 0 ? 0 : grid.monthlyPayments[base] / loanAmounts[0];
+            }
+        }
+        return grid;
+    }
+
+    // Closed form n = -ln(1 - P r / E) / ln(1 + r), rounded up to whole months.
+    static int tenureMonthsForPayment(double loanAmount, double interestRate, double monthlyPayment) {
+        if (!(loanAmount > 0) || !(monthlyPayment > 0)) {
+            throw new IllegalArgumentException("Loan amount and monthly payment must be positive");
+        }
+        double monthlyRate = interestRate / 12 / 100;
+        if (monthlyRate == 0) {
+            return (int) Math.ceil(loanAmount / monthlyPayment);
+        }
+        double coverage = loanAmount * monthlyRate / monthlyPayment;
+        if (coverage >= 1) {
+            throw new IllegalArgumentException("Monthly payment " + monthlyPayment
+                    + " does not cover the first month's interest " + loanAmount * monthlyRate);
+        }
+        double months = -Math.log1p(-coverage) / Math.log1p(monthlyRate);
+        // Absorbs floating-point noise so an EMI taken from an exact tenure maps back to that tenure.
+        return (int) Math.ceil(months - 1e-9);
+    }
+
+    // Newton's method on f(r) = P r / (1 - (1 + r)^-n) - E, started from the flat-interest approximation.
+    static double rateForPayment(double loanAmount, double monthlyPayment, int tenureYears) {
+        if (!(loanAmount > 0) || !(monthlyPayment > 0) || tenureYears <= 0) {
+            throw new IllegalArgumentException("Loan amount, monthly payment and tenure must be positive");
+        }
+        int n = tenureYears * 12;
+        double totalPaid = monthlyPayment * n;
+        if (totalPaid < loanAmount) {
+            throw new IllegalArgumentException("Monthly payment " + monthlyPayment + " never repays " + loanAmount
+                    + " in " + tenureYears + " years");
+        }
+        if (totalPaid == loanAmount) {
+            return 0;
+        }
+        double rate = 2 * (totalPaid - loanAmount) / (loanAmount * (n + 1));
+        for (int step = 0; step < MAX_NEWTON_STEPS; step++) {
+            double discount = Math.pow(1 + rate, -n);
+            double denominator = 1 - discount;
+            double value = loanAmount * rate / denominator - monthlyPayment;
+            double slope = loanAmount * (denominator - rate * n * discount / (1 + rate)) / (denominator * denominator);
+            double next = rate - value / slope;
+            if (next <= 0) {
+                next = rate / 2;
+            }
+            if (Math.abs(next - rate) < RATE_TOLERANCE) {
+                return next * 12 * 100;
+            }
+            rate = next;
+        }
+        return rate * 12 * 100;
+    }
+}
+
+class BatchQuoteResult {
+    static final int CHUNK_SIZE = 4096;
+
+    interface ChunkKernel {
+        void run(int from, int to);
+    }
+
+    final double[] monthlyPayments;
+    final double[] totalInterests;
+
+    public BatchQuoteResult(int size) {
+        this.monthlyPayments = new double[size];
+        this.totalInterests = new double[size];
+    }
+
+    public int size() {
+        return monthlyPayments.length;
+    }
+
+    static int checkLengths(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        if (loanAmounts.length != interestRates.length || loanAmounts.length != tenureYears.length) {
+            throw new IllegalArgumentException("Batch arrays differ in length: " + loanAmounts.length + ", "
+                    + interestRates.length + ", " + tenureYears.length);
+        }
+        return loanAmounts.length;
+    }
+
+    // Small batches stay on the caller thread; larger ones are split into fixed chunks on the common fork-join pool.
+    static void forEachChunk(int size, ChunkKernel kernel) {
+        if (size <= CHUNK_SIZE) {
+            kernel.run(0, size);
+            return;
+        }
+        int chunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int from = chunk * CHUNK_SIZE;
+            kernel.run(from, Math.min(size, from + CHUNK_SIZE));
+        });
+    }
+}
+
+class AmortizationSchedule {
+    int months;
+    // Rows are months unless a product fills one row per day.
+    int periodsPerYear = 12;
+    double monthlyPayment;
+    double[] principal;
+    double[] interest;
+    double[] balance;
+
+    public AmortizationSchedule() {
+        this(0);
+    }
+
+    public AmortizationSchedule(int capacity) {
+        this.principal = new double[capacity];
+        this.interest = new double[capacity];
+        this.balance = new double[capacity];
+    }
+
+    void reset(int months) {
+        reset(months, 12);
+    }
+
+    void reset(int periods, int periodsPerYear) {
+        if (principal.length < periods) {
+            principal = new double[periods];
+            interest = new double[periods];
+            balance = new double[periods];
+        }
+        this.months = periods;
+        this.periodsPerYear = periodsPerYear;
+    }
+
+    public int size() {
+        return months;
+    }
+
+    public String formatRow(int index) {
+        if (index < 0 || index >= months) {
+            throw new IndexOutOfBoundsException("Month index " + index + " out of range 0.." + (months - 1));
+        }
+        return String.format("%s %d: Principal: %.2f, Interest: %.2f, Balance: %.2f", periodsPerYear == 365 ? "Day" : "Month",
+                index + 1, principal[index], interest[index], balance[index]);
+    }
+
+    // Rows are formatted on access, so the view always reflects the current contents of this schedule.
+    public List<String> asText() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return formatRow(index);
+            }
+
+            @Override
+            public int size() {
+                return months;
+            }
+        };
+    }
+}
+
+class LoanDetails {
+    int loanId;
+    double loanAmount;
+    double interestRate;
+    int tenureYears;
+    double monthlyPayment;
+    double totalInterest;
+
+    public LoanDetails(int loanId, double loanAmount, double interestRate, int tenureYears) {
+        this.loanId = loanId;
+        this.loanAmount = loanAmount;
+        this.interestRate = interestRate;
+        this.tenureYears = tenureYears;
+    }
+}
+
+class BorrowerDetails {
+    int borrowerId;
+    String borrowerName;
+    String email;
+    String phoneNumber;
+
+    public BorrowerDetails(int borrowerId, String borrowerName, String email, String phoneNumber) {
+        this.borrowerId = borrowerId;
+        this.borrowerName = borrowerName;
+        this.email = email;
+        this.phoneNumber = phoneNumber;
+    }
+}
+
+class IntObjectMap<V> {
+    private static final int EMPTY_KEY = 0;
+
+    private int[] keys;
+    private Object[] values;
+    private V zeroKeyValue;
+    private int size;
+    private int mask;
+    private int resizeThreshold;
+
+    public IntObjectMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = capacity / 2;
+    }
+
+    private static int slot(int key, int mask) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key == EMPTY_KEY) {
+            return zeroKeyValue;
+        }
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                return (V) values[i];
+            }
+            if (k == EMPTY_KEY) {
+                return null;
+            }
+        }
+    }
+
+    // Keeps the existing mapping when the key is already present and returns it.
+    @SuppressWarnings("unchecked")
+    public V putIfAbsent(int key, V value) {
+        if (key == EMPTY_KEY) {
+            V existing = zeroKeyValue;
+            if (existing == null) {
+                zeroKeyValue = value;
+                size++;
+            }
+            return existing;
+        }
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == key) {
+                return (V) values[i];
+            }
+            if (k == EMPTY_KEY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > resizeThreshold) {
+                    rehash(keys.length << 1);
+                }
+                return null;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        if (key == EMPTY_KEY) {
+            V existing = zeroKeyValue;
+            if (existing != null) {
+                zeroKeyValue = null;
+                size--;
+            }
+            return existing;
+        }
+        for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+            int k = keys[i];
+            if (k == EMPTY_KEY) {
+                return null;
+            }
+            if (k == key) {
+                V existing = (V) values[i];
+                closeGap(i);
+                size--;
+                return existing;
+            }
+        }
+    }
+
+    // Backward-shift deletion: entries further along the probe run move into the gap when their home slot allows it,
+    // so no tombstones are needed and lookups still stop at the first empty slot.
+    private void closeGap(int gap) {
+        for (int i = (gap + 1) & mask; keys[i] != EMPTY_KEY; i = (i + 1) & mask) {
+            int home = slot(keys[i], mask);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY_KEY;
+        values[gap] = null;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key != EMPTY_KEY) {
+                int j = slot(key, mask);
+                while (keys[j] != EMPTY_KEY) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = key;
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+}
+
+// Safe for concurrent use: every access holds the monitor, and snapshots never see later appends.
+class LoanManagement {
+    static final int DEFAULT_RECENT_CAPACITY = 100;
+
+    // The history entries recorded for one loan id: the first, which lookups return, and the slot of the latest.
+    private static final class Entry {
+        final LoanDetails first;
+        int head;
+
+        Entry(LoanDetails first, int head) {
+            this.first = first;
+            this.head = head;
+        }
+    }
+
+    private LoanDetails[] loans = new LoanDetails[16];
+    // Slot of the next older entry with the same loan id, or -1; threads each id's entries through the history.
+    private int[] nextSameId = new int[16];
+    private int size;
+    // Set while a view from getAllLoans may still be reading loans; the next removal copies the array first.
+    private boolean shared;
+    private final IntObjectMap<Entry> index = new IntObjectMap<>(16);
+    private final LoanDetails[] recent;
+    private int recentNext;
+    private int recentCount;
+
+    public LoanManagement() {
+        this(DEFAULT_RECENT_CAPACITY);
+    }
+
+    public LoanManagement(int recentCapacity) {
+        this.recent = new LoanDetails[recentCapacity];
+    }
+
+    public synchronized void addLoan(LoanDetails loan) {
+        if (size == loans.length) {
+            loans = Arrays.copyOf(loans, size * 2);
+            nextSameId = Arrays.copyOf(nextSameId, size * 2);
+        }
+        // The first quote recorded for an id wins, matching the row that the Loans primary key keeps.
+        Entry entry = index.putIfAbsent(loan.loanId, new Entry(loan, size));
+        nextSameId[size] = entry == null ? -1 : entry.head;
+        if (entry != null) {
+            entry.head = size;
+        }
+        loans[size++] = loan;
+        if (recent.length > 0) {
+            recent[recentNext] = loan;
+            recentNext = (recentNext + 1) % recent.length;
+            recentCount = Math.min(recentCount + 1, recent.length);
+        }
+    }
+
+    // Appends never touch slots below the captured size and removals copy the array while a view is outstanding, so
+    // the returned view is a stable snapshot without a copy.
+    public synchronized List<LoanDetails> getAllLoans() {
+        LoanDetails[] data = loans;
+        int count = size;
+        shared = true;
+        return new AbstractList<LoanDetails>() {
+            @Override
+            public LoanDetails get(int i) {
+                Objects.checkIndex(i, count);
+                return data[i];
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    public Stream<LoanDetails> streamLoans() {
+        return getAllLoans().stream();
+    }
+
+    // Oldest first, at most the ring capacity.
+    public synchronized List<LoanDetails> getRecentLoans() {
+        List<LoanDetails> result = new ArrayList<>(recentCount);
+        int start = (recentNext - recentCount + recent.length) % Math.max(recent.length, 1);
+        for (int i = 0; i < recentCount; i++) {
+            result.add(recent[(start + i) % recent.length]);
+        }
+        return result;
+    }
+
+    public synchronized LoanDetails getLoanById(int loanId) {
+        Entry entry = index.get(loanId);
+        return entry == null ? null : entry.first;
+    }
+
+    // Drops every history entry for the id and returns how many there were. Each entry is swap-removed, so the cost
+    // is the number of entries for the id rather than the size of the history; the history is no longer in quote
+    // order once anything has been removed.
+    public synchronized int removeLoan(int loanId) {
+        int removed = unlink(loanId);
+        if (removed > 0) {
+            dropFromRecent(loan -> loan.loanId == loanId);
+        }
+        return removed;
+    }
+
+    // Removes in place, one id at a time as removeLoan does. Returns the number of history entries dropped.
+    public synchronized int removeLoans(int[] loanIds) {
+        IntObjectMap<Boolean> doomed = new IntObjectMap<>(loanIds.length);
+        int removed = 0;
+        for (int loanId : loanIds) {
+            if (doomed.putIfAbsent(loanId, Boolean.TRUE) == null) {
+                removed += unlink(loanId);
+            }
+        }
+        if (removed > 0) {
+            dropFromRecent(loan -> doomed.get(loan.loanId) != null);
+        }
+        return removed;
+    }
+
+    private int unlink(int loanId) {
+        Entry entry = index.remove(loanId);
+        if (entry == null) {
+            return 0;
+        }
+        int count = 0;
+        for (int slot = entry.head; slot >= 0; slot = nextSameId[slot]) {
+            count++;
+        }
+        int[] slots = new int[count];
+        for (int slot = entry.head, i = 0; slot >= 0; slot = nextSameId[slot]) {
+            slots[i++] = slot;
+        }
+        if (shared) {
+            loans = loans.clone();
+            shared = false;
+        }
+        // Highest slot first, so the entry moved down from the end is never one that is still to be removed.
+        Arrays.sort(slots);
+        for (int i = count - 1; i >= 0; i--) {
+            moveLast(slots[i]);
+        }
+        return count;
+    }
+
+    // Moves the last entry into the vacated slot and relinks it in its id's chain.
+    private void moveLast(int slot) {
+        int last = --size;
+        if (slot != last) {
+            LoanDetails moved = loans[last];
+            Entry entry = index.get(moved.loanId);
+            if (entry.head == last) {
+                entry.head = slot;
+            } else {
+                int previous = entry.head;
+                while (nextSameId[previous] != last) {
+                    previous = nextSameId[previous];
+                }
+                nextSameId[previous] = slot;
+            }
+            loans[slot] = moved;
+            nextSameId[slot] = nextSameId[last];
+        }
+        loans[last] = null;
+    }
+
+    private void dropFromRecent(Predicate<LoanDetails> doomed) {
+        List<LoanDetails> survivors = getRecentLoans();
+        survivors.removeIf(doomed);
+        Arrays.fill(recent, null);
+        recentCount = survivors.size();
+        for (int i = 0; i < recentCount; i++) {
+            recent[i] = survivors.get(i);
+        }
+        recentNext = recent.length == 0 ? 0 : recentCount % recent.length;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+}
+
+class AnnuityFactorCache {
+    static final int DEFAULT_CAPACITY = 1024;
+
+    // Immutable, so a slot read without locking always sees a complete entry.
+    private static final class Entry {
+        final long rateBits;
+        final int tenureYears;
+        final double factor;
+
+        Entry(long rateBits, int tenureYears, double factor) {
+            this.rateBits = rateBits;
+            this.tenureYears = tenureYears;
+            this.factor = factor;
+        }
+    }
+
+    // Two-way set associative: each rate and tenure hashes to a pair of adjacent slots, and when both are taken the
+    // newcomer replaces the first. Lookups take no lock and allocate nothing, so quote threads, fork-join workers and
+    // HTTP handlers never queue behind each other.
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public AnnuityFactorCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // Monthly payment per unit of principal at an annual rate in percent.
+    static double computeFactor(double interestRate, int tenureYears) {
+        return periodFactor(interestRate / 12 / 100, tenureYears * 12);
+    }
+
+    // Installment per unit of principal: r / (1 - (1 + r)^-n), or 1 / n for an interest-free loan. This is the one
+    // annuity formula; calculators, products, grids and schedules all come through here.
+    static double periodFactor(double periodRate, int periods) {
+        return periodFactor(periodRate, periods, periodRate == 0 ? 1 : Math.pow(1 + periodRate, -periods));
+    }
+
+    // The same for a caller that already holds the discount (1 + r)^-n, as EmiGrid does.
+    static double periodFactor(double periodRate, int periods, double discount) {
+        if (periodRate == 0) {
+            return 1.0 / periods;
+        }
+        return periodRate / (1 - discount);
+    }
+
+    // Rates like 8.5 have mostly zero mantissa bits, so the key is fully mixed (MurmurHash3's finalizer) before masking.
+    private int slot(long rateBits, int tenureYears) {
+        long hash = rateBits * 31 + tenureYears;
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return (int) (hash ^ (hash >>> 33)) & mask;
+    }
+
+    public double factor(double interestRate, int tenureYears) {
+        long rateBits = Double.doubleToLongBits(interestRate);
+        int first = slot(rateBits, tenureYears);
+        Entry primary = slots.get(first);
+        if (primary != null && primary.rateBits == rateBits && primary.tenureYears == tenureYears) {
+            hits.increment();
+            return primary.factor;
+        }
+        Entry secondary = slots.get(first ^ 1);
+        if (secondary != null && secondary.rateBits == rateBits && secondary.tenureYears == tenureYears) {
+            hits.increment();
+            return secondary.factor;
+        }
+        misses.increment();
+        double factor = computeFactor(interestRate, tenureYears);
+        slots.set(primary != null && secondary == null ? first ^ 1 : first, new Entry(rateBits, tenureYears, factor));
+        return factor;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < slots.length(); i++) {
+            slots.set(i, null);
+        }
+    }
+}
+
+class HomeLoanCalculator implements LoanCalculator {
+    static final Metrics.Timer PAYMENT_TIMER = Metrics.timer("calc.calculateMonthlyPayment");
+    static final Metrics.Timer SCHEDULE_TIMER = Metrics.timer("calc.fillAmortizationSchedule");
+
+    private final AnnuityFactorCache factorCache;
+
+    public HomeLoanCalculator() {
+        this(new AnnuityFactorCache(AnnuityFactorCache.DEFAULT_CAPACITY));
+    }
+
+    public HomeLoanCalculator(AnnuityFactorCache factorCache) {
+        this.factorCache = factorCache;
+    }
+
+    public AnnuityFactorCache getFactorCache() {
+        return factorCache;
+    }
+
+    @Override
+    public double calculateMonthlyPayment(double loanAmount, double interestRate, int tenureYears) {
+        long started = PAYMENT_TIMER.start();
+        double monthlyPayment = loanAmount * factorCache.factor(interestRate, tenureYears);
+        PAYMENT_TIMER.stop(started);
+        return monthlyPayment;
+    }
+
+    @Override
+    public double calculateTotalInterest(double loanAmount, double interestRate, int tenureYears) {
+        double monthlyPayment = calculateMonthlyPayment(loanAmount, interestRate, tenureYears);
+        return (monthlyPayment * tenureYears * 12) - loanAmount;
+    }
+
+    @Override
+    public void quote(LoanDetails loan) {
+        double monthlyPayment = calculateMonthlyPayment(loan.loanAmount, loan.interestRate, loan.tenureYears);
+        loan.monthlyPayment = monthlyPayment;
+        loan.totalInterest = (monthlyPayment * loan.tenureYears * 12) - loan.loanAmount;
+    }
+
+    // One factor lookup serves the quote and the schedule.
+    @Override
+    public AmortizationSchedule quote(LoanDetails loan, AmortizationSchedule schedule) {
+        quote(loan);
+        return fillAmortizationSchedule(loan.loanAmount, loan.interestRate, loan.tenureYears * 12, loan.monthlyPayment, schedule);
+    }
+
+    // Bypasses the shared factor cache so worker threads never contend on it; consecutive loans with the
+    // same rate and tenure reuse the previous factor, which is the common case in a repricing run.
+    @Override
+    public BatchQuoteResult calculateBatch(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        BatchQuoteResult result = new BatchQuoteResult(BatchQuoteResult.checkLengths(loanAmounts, interestRates, tenureYears));
+        double[] monthlyPayments = result.monthlyPayments;
+        double[] totalInterests = result.totalInterests;
+        BatchQuoteResult.forEachChunk(result.size(), (from, to) -> {
+            double lastRate = Double.NaN;
+            int lastTenure = -1;
+            double factor = 0;
+            for (int i = from; i < to; i++) {
+                double rate = interestRates[i];
+                int tenure = tenureYears[i];
+                if (rate != lastRate || tenure != lastTenure) {
+                    factor = AnnuityFactorCache.computeFactor(rate, tenure);
+                    lastRate = rate;
+                    lastTenure = tenure;
+                }
+                double monthlyPayment = loanAmounts[i] * factor;
+                monthlyPayments[i] = monthlyPayment;
+                totalInterests[i] = monthlyPayment * (tenure * 12) - loanAmounts[i];
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public List<String> generateAmortizationSchedule(double loanAmount, double interestRate, int tenureYears) {
+        return fillAmortizationSchedule(loanAmount, interestRate, tenureYears, new AmortizationSchedule(tenureYears * 12)).asText();
+    }
+
+    @Override
+    public AmortizationSchedule fillAmortizationSchedule(double loanAmount, double interestRate, int tenureYears, AmortizationSchedule schedule) {
+        int tenureMonths = tenureYears * 12;
+        double monthlyPayment = calculateMonthlyPayment(loanAmount, interestRate, tenureYears);
+        return fillAmortizationSchedule(loanAmount, interestRate, tenureMonths, monthlyPayment, schedule);
+    }
+
+    AmortizationSchedule fillAmortizationSchedule(double loanAmount, double interestRate, int tenureMonths, double monthlyPayment, AmortizationSchedule schedule) {
+        long started = SCHEDULE_TIMER.start();
+        double balance = loanAmount;
+        double monthlyRate = interestRate / 12 / 100;
+
+        schedule.reset(tenureMonths);
+        schedule.monthlyPayment = monthlyPayment;
+        double[] principalColumn = schedule.principal;
+        double[] interestColumn = schedule.interest;
+        double[] balanceColumn = schedule.balance;
+        for (int i = 0; i < tenureMonths; i++) {
+            double interest = balance * monthlyRate;
+            double principal = monthlyPayment - interest;
+            balance -= principal;
+            principalColumn[i] = principal;
+            interestColumn[i] = interest;
+            balanceColumn[i] = balance;
+        }
+
+        SCHEDULE_TIMER.stop(started);
+        return schedule;
+    }
+}
+
+class FixedPointLoanCalculator implements LoanCalculator {
+    static final long PAISA_PER_RUPEE = 100;
+    // Annual rates are held in ten-thousandths of a percent, so 8.5% is 85_000.
+    static final long RATE_SCALE = 10_000;
+    static final long MONTHLY_RATE_DIVISOR = 12 * 100 * RATE_SCALE;
+    // Keeps balance * scaled rate inside a long for any rate up to 100%.
+    static final long MAX_PAISA = 1_000_000_000_000L;
+
+    static long toPaisa(double rupees) {
+        long paisa = BigDecimal.valueOf(rupees).movePointRight(2).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        if (paisa <= 0 || paisa > MAX_PAISA) {
+            throw new IllegalArgumentException("Loan amount must be between 0.01 and " + MAX_PAISA / PAISA_PER_RUPEE);
+        }
+        return paisa;
+    }
+
+    static long toScaledRate(double annualRate) {
+        long scaled = BigDecimal.valueOf(annualRate).movePointRight(4).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        if (scaled < 0 || scaled > 100 * RATE_SCALE) {
+            throw new IllegalArgumentException("Interest rate must be between 0 and 100");
+        }
+        return scaled;
+    }
+
+    static double toRupees(long paisa) {
+        return paisa / (double) PAISA_PER_RUPEE;
+    }
+
+    // Integer division rounded half to even, for non-negative numerators.
+    static long divideHalfEven(long numerator, long denominator) {
+        long quotient = numerator / denominator;
+        long twiceRemainder = (numerator - quotient * denominator) * 2;
+        if (twiceRemainder > denominator || (twiceRemainder == denominator && (quotient & 1) == 1)) {
+            quotient++;
+        }
+        return quotient;
+    }
+
+    static long monthlyInterestPaisa(long balancePaisa, long scaledRate) {
+        return divideHalfEven(Math.multiplyExact(balancePaisa, scaledRate), MONTHLY_RATE_DIVISOR);
+    }
+
+    // The annuity factor is evaluated once in double and the installment rounded half-up to the paisa. For amounts
+    // within MAX_PAISA the double error is far below half a paisa, and the last installment settles any remainder.
+    static long installmentPaisa(long principalPaisa, long scaledRate, int tenureMonths) {
+        if (scaledRate == 0) {
+            return (principalPaisa + tenureMonths - 1) / tenureMonths;
+        }
+        return Math.round(principalPaisa * AnnuityFactorCache.periodFactor(scaledRate / (double) MONTHLY_RATE_DIVISOR, tenureMonths));
+    }
+
+    // Timed under the same name as HomeLoanCalculator.calculateMonthlyPayment, so dashboards do not depend on which
+    // calculator is configured.
+    static long timedInstallmentPaisa(long principalPaisa, long scaledRate, int tenureMonths) {
+        long started = HomeLoanCalculator.PAYMENT_TIMER.start();
+        long installment = installmentPaisa(principalPaisa, scaledRate, tenureMonths);
+        HomeLoanCalculator.PAYMENT_TIMER.stop(started);
+        return installment;
+    }
+
+    // Walks the schedule in paisa and returns the exact total interest; the final installment clears the balance to zero.
+    static long totalInterestPaisa(long principalPaisa, long scaledRate, int tenureMonths, long installment) {
+        long balance = principalPaisa;
+        long totalInterest = 0;
+        for (int month = 1; month <= tenureMonths && balance > 0; month++) {
+            long interest = monthlyInterestPaisa(balance, scaledRate);
+            long principal = month == tenureMonths ? balance : Math.min(installment - interest, balance);
+            balance -= principal;
+            totalInterest += interest;
+        }
+        return totalInterest;
+    }
+
+    @Override
+    public double calculateMonthlyPayment(double loanAmount, double interestRate, int tenureYears) {
+        return toRupees(timedInstallmentPaisa(toPaisa(loanAmount), toScaledRate(interestRate), tenureYears * 12));
+    }
+
+    @Override
+    public double calculateTotalInterest(double loanAmount, double interestRate, int tenureYears) {
+        long principal = toPaisa(loanAmount);
+        long rate = toScaledRate(interestRate);
+        int months = tenureYears * 12;
+        return toRupees(totalInterestPaisa(principal, rate, months, timedInstallmentPaisa(principal, rate, months)));
+    }
+
+    @Override
+    public void quote(LoanDetails loan) {
+        long principal = toPaisa(loan.loanAmount);
+        long rate = toScaledRate(loan.interestRate);
+        int months = loan.tenureYears * 12;
+        long installment = timedInstallmentPaisa(principal, rate, months);
+        loan.monthlyPayment = toRupees(installment);
+        loan.totalInterest = toRupees(totalInterestPaisa(principal, rate, months, installment));
+    }
+
+    // Grid cells and the what-if answers are settled in paisa too, so they agree with calculateMonthlyPayment. Each
+    // solver starts from the floating-point closed form and searches for the exact boundary; installmentPaisa is
+    // monotonic in principal, tenure and rate. The estimate is usually within a unit or two, but near the limits it
+    // can be far off, so principal and rate are found by bisection rather than by stepping.
+    @Override
+    public EmiGrid calculateGrid(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        return EmiGrid.tabulate(loanAmounts, interestRates, tenureYears, this);
+    }
+
+    // Largest principal, to the paisa, whose installment does not exceed monthlyPayment.
+    @Override
+    public double maxAffordableLoan(double monthlyPayment, double interestRate, int tenureYears) {
+        long installment = toPaisa(monthlyPayment);
+        long rate = toScaledRate(interestRate);
+        int months = tenureYears * 12;
+        long estimate = (long) (installment / AnnuityFactorCache.computeFactor(rate / (double) RATE_SCALE, tenureYears));
+        return toRupees(largestFitting(estimate, MAX_PAISA, principal -> installmentPaisa(principal, rate, months) <= installment));
+    }
+
+    @Override
+    public int tenureMonthsForPayment(double loanAmount, double interestRate, double monthlyPayment) {
+        long principal = toPaisa(loanAmount);
+        long rate = toScaledRate(interestRate);
+        long installment = toPaisa(monthlyPayment);
+        int months = EmiGrid.tenureMonthsForPayment(toRupees(principal), rate / (double) RATE_SCALE, toRupees(installment));
+        while (months > 1 && installmentPaisa(principal, rate, months - 1) <= installment) {
+            months--;
+        }
+        while (installmentPaisa(principal, rate, months) > installment) {
+            months++;
+        }
+        return months;
+    }
+
+    // Highest rate, in the ten-thousandths of a percent this calculator works in, whose installment does not exceed
+    // monthlyPayment.
+    @Override
+    public double rateForPayment(double loanAmount, double monthlyPayment, int tenureYears) {
+        long principal = toPaisa(loanAmount);
+        long installment = toPaisa(monthlyPayment);
+        int months = tenureYears * 12;
+        long estimate = toScaledRate(Math.min(100, EmiGrid.rateForPayment(toRupees(principal), toRupees(installment), tenureYears)));
+        return largestFitting(estimate, 100 * RATE_SCALE, rate -> installmentPaisa(principal, rate, months) <= installment)
+                / (double) RATE_SCALE;
+    }
+
+    // Largest value in [0, max] that fits, or 0 if none does; fits must only turn false as the value grows. Doubles
+    // the step away from the estimate until the boundary is bracketed, then bisects, so a close estimate costs a few
+    // evaluations and a poor one O(log max).
+    static long largestFitting(long estimate, long max, LongPredicate fits) {
+        long lo;
+        long hi;
+        long start = Math.max(0, Math.min(max, estimate));
+        if (fits.test(start)) {
+            lo = start;
+            hi = max + 1;
+            for (long step = 1; lo < max; step *= 2) {
+                long next = Math.min(max, lo + step);
+                if (!fits.test(next)) {
+                    hi = next;
+                    break;
+                }
+                lo = next;
+            }
+        } else {
+            lo = -1;
+            hi = start;
+            for (long step = 1; hi > 0; step *= 2) {
+                long next = Math.max(0, hi - step);
+                if (fits.test(next)) {
+                    lo = next;
+                    break;
+                }
+                hi = next;
+            }
+        }
+        // fits(lo) holds (or lo is -1) and fits(hi) does not (or hi is max + 1).
+        while (hi - lo > 1) {
+            long mid = lo + (hi - lo) / 2;
+            if (fits.test(mid)) {
+                lo = mid;
+            } else {
+                hi = mid;
+            }
+        }
+        return Math.max(0, lo);
+    }
+
+    @Override
+    public List<String> generateAmortizationSchedule(double loanAmount, double interestRate, int tenureYears) {
+        return fillAmortizationSchedule(loanAmount, interestRate, tenureYears, new AmortizationSchedule(tenureYears * 12)).asText();
+    }
+
+    @Override
+    public AmortizationSchedule fillAmortizationSchedule(double loanAmount, double interestRate, int tenureYears, AmortizationSchedule schedule) {
+        long balance = toPaisa(loanAmount);
+        long rate = toScaledRate(interestRate);
+        int months = tenureYears * 12;
+        long installment = timedInstallmentPaisa(balance, rate, months);
+        long started = HomeLoanCalculator.SCHEDULE_TIMER.start();
+        schedule.reset(months);
+        schedule.monthlyPayment = toRupees(installment);
+        int filled = 0;
+        for (int i = 0; i < months && balance > 0; i++) {
+            long interest = monthlyInterestPaisa(balance, rate);
+            long principal = i == months - 1 ? balance : Math.min(installment - interest, balance);
+            balance -= principal;
+            schedule.principal[i] = toRupees(principal);
+            schedule.interest[i] = toRupees(interest);
+            schedule.balance[i] = toRupees(balance);
+            filled = i + 1;
+        }
+        schedule.months = filled;
+        HomeLoanCalculator.SCHEDULE_TIMER.stop(started);
+        return schedule;
+    }
+}
+
+// A repayment product: turns amount, annual rate and tenure into a schedule. Kernels write straight into the
+// primitive columns of AmortizationSchedule (one row per period) and allocate nothing once it has grown to size.
+interface LoanProduct {
+    String name();
+
+    // Rows per year in the schedule this product fills: 12 for monthly repayment, 365 for daily rest.
+    int periodsPerYear();
+
+    // The first installment, expressed per month so products with different periodicity compare directly.
+    double monthlyPayment(double loanAmount, double interestRate, int tenureYears);
+
+    double totalInterest(double loanAmount, double interestRate, int tenureYears);
+
+    AmortizationSchedule fill(double loanAmount, double interestRate, int tenureYears, AmortizationSchedule schedule);
+}
+
+class LoanProducts {
+    static final LoanProduct STANDARD = new Annuity("standard", 12);
+    static final LoanProduct DAILY_REDUCING = new Annuity("daily-reducing", 365);
+
+    // Parses -Dhomeloan.product: standard, daily-reducing, step-up:<yearly step %>, or
+    // floating:<months between resets>:<rate>,<rate>,... where each reset moves to the next rate in the list.
+    static LoanProduct parse(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "standard":
+                return STANDARD;
+            case "daily-reducing":
+                return DAILY_REDUCING;
+            case "step-up":
+                return new StepUp(parts.length > 1 ? Double.parseDouble(parts[1]) : 5);
+            case "floating":
+                if (parts.length < 3) {
+                    throw new IllegalArgumentException("floating needs floating:<reset months>:<rate>,<rate>,...");
+                }
+                return new Floating(Integer.parseInt(parts[1]),
+                        Arrays.stream(parts[2].split(",")).mapToDouble(rate -> Double.parseDouble(rate.trim())).toArray());
+            default:
+                throw new IllegalArgumentException("Unknown loan product: " + spec);
+        }
+    }
+
+    // Amortizes rows [from, to) at a constant installment and returns the closing balance. Only the balance recurrence
+    // carries a dependency from one period to the next; interest and principal are derived from the finished balances
+    // in a second loop with no carried dependency, which the JIT can unroll and vectorize. That split is what keeps
+    // 10k-period daily schedules cheap.
+    static double amortize(AmortizationSchedule schedule, int from, int to, double openingBalance, double periodRate, double installment) {
+        if (from >= to) {
+            return openingBalance;
+        }
+        double[] balance = schedule.balance;
+        double[] interest = schedule.interest;
+        double[] principal = schedule.principal;
+        double growth = 1 + periodRate;
+        double b = openingBalance;
+        for (int i = from; i < to; i++) {
+            b = b * growth - installment;
+            balance[i] = b;
+        }
+        interest[from] = openingBalance * periodRate;
+        principal[from] = installment - interest[from];
+        for (int i = from + 1; i < to; i++) {
+            double accrued = balance[i - 1] * periodRate;
+            interest[i] = accrued;
+            principal[i] = installment - accrued;
+        }
+        return b;
+    }
+
+    // Installment that clears balance over periods at periodRate.
+    static double installment(double balance, double periodRate, int periods) {
+        return balance * AnnuityFactorCache.periodFactor(periodRate, periods);
+    }
+
+    // Constant installment every period; monthly for STANDARD, daily for DAILY_REDUCING.
+    static final class Annuity implements LoanProduct {
+        private final String name;
+        private final int periodsPerYear;
+
+        Annuity(String name, int periodsPerYear) {
+            this.name = name;
+            this.periodsPerYear = periodsPerYear;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public int periodsPerYear() {
+            return periodsPerYear;
+        }
+
+        double periodRate(double interestRate) {
+            return interestRate / periodsPerYear / 100;
+        }
+
+        @Override
+        public double monthlyPayment(double loanAmount, double interestRate, int tenureYears) {
+            return installment(loanAmount, periodRate(interestRate), tenureYears * periodsPerYear) * periodsPerYear / 12;
+        }
+
+        @Override
+        public double totalInterest(double loanAmount, double interestRate, int tenureYears) {
+            int periods = tenureYears * periodsPerYear;
+            return installment(loanAmount, periodRate(interestRate), periods) * periods - loanAmount;
+        }
+
+        @Override
+        public AmortizationSchedule fill(double loanAmount, double interestRate, int tenureYears, AmortizationSchedule schedule) {
+            int periods = tenureYears * periodsPerYear;
+            double rate = periodRate(interestRate);
+            double installment = installment(loanAmount, rate, periods);
+            schedule.reset(periods, periodsPerYear);
+            schedule.monthlyPayment = installment * periodsPerYear / 12;
+            amortize(schedule, 0, periods, loanAmount, rate, installment);
+            return schedule;
+        }
+    }
+
+    // Monthly EMI that rises by stepPercent at the start of every year. The closing balance is linear in the first
+    // EMI, E0 * sum(m_k * g^(N-1-k)) = P * g^N with m_k the step multiplier of month k, so both sums are accumulated
+    // in one pass (Horner form, no Math.pow) and E0 falls out of a single division.
+    static final class StepUp implements LoanProduct {
+        private final double stepPercent;
+
+        StepUp(double stepPercent) {
+            if (!(stepPercent > -100)) {
+                throw new IllegalArgumentException("Step must be greater than -100%");
+            }
+            this.stepPercent = stepPercent;
+        }
+
+        @Override
+        public String name() {
+            return "step-up:" + stepPercent;
+        }
+
+        @Override
+        public int periodsPerYear() {
+            return 12;
+        }
+
+        // Returns {first EMI, sum of all EMIs as a multiple of the first}.
+        private double[] solve(double loanAmount, double interestRate, int tenureYears) {
+            double growth = 1 + interestRate / 12 / 100;
+            double step = 1 + stepPercent / 100;
+            double weighted = 0;
+            double compounded = 1;
+            double multiplier = 1;
+            double multipliers = 0;
+            for (int year = 0; year < tenureYears; year++) {
+                for (int month = 0; month < 12; month++) {
+                    weighted = weighted * growth + multiplier;
+                    compounded *= growth;
+                    multipliers += multiplier;
+                }
+                multiplier *= step;
+            }
+            return new double[]{loanAmount * compounded / weighted, multipliers};
+        }
+
+        @Override
+        public double monthlyPayment(double loanAmount, double interestRate, int tenureYears) {
+            return solve(loanAmount, interestRate, tenureYears)[0];
+        }
+
+        @Override
+        public double totalInterest(double loanAmount, double interestRate, int tenureYears) {
+            double[] solved = solve(loanAmount, interestRate, tenureYears);
+            return solved[0] * solved[1] - loanAmount;
+        }
+
+        @Override
+        public AmortizationSchedule fill(double loanAmount, double interestRate, int tenureYears, AmortizationSchedule schedule) {
+            double rate = interestRate / 12 / 100;
+            double emi = solve(loanAmount, interestRate, tenureYears)[0];
+            double step = 1 + stepPercent / 100;
+            schedule.reset(tenureYears * 12, 12);
+            schedule.monthlyPayment = emi;
+            double balance = loanAmount;
+            for (int year = 0; year < tenureYears; year++) {
+                balance = amortize(schedule, year * 12, year * 12 + 12, balance, rate, emi);
+                emi *= step;
+            }
+            return schedule;
+        }
+    }
+
+    // Starts at the quoted rate and resets every resetMonths to the next rate in the path (the last one then holds).
+    // At each reset the EMI is recomputed on the outstanding balance over the remaining tenure. Each segment has a
+    // closed-form closing balance, so totals cost one Math.pow per reset rather than one step per month.
+    static final class Floating implements LoanProduct {
+        private final int resetMonths;
+        private final double[] ratePath;
+
+        Floating(int resetMonths, double[] ratePath) {
+            if (resetMonths <= 0 || ratePath.length == 0) {
+                throw new IllegalArgumentException("Floating product needs a positive reset interval and at least one rate");
+            }
+            this.resetMonths = resetMonths;
+            this.ratePath = ratePath.clone();
+        }
+
+        @Override
+        public String name() {
+            return "floating:" + resetMonths + ":" + Arrays.toString(ratePath);
+        }
+
+        @Override
+        public int periodsPerYear() {
+            return 12;
+        }
+
+        double rateForSegment(double interestRate, int segment) {
+            return segment == 0 ? interestRate : ratePath[Math.min(segment, ratePath.length) - 1];
+        }
+
+        @Override
+        public double monthlyPayment(double loanAmount, double interestRate, int tenureYears) {
+            return installment(loanAmount, interestRate / 12 / 100, tenureYears * 12);
+        }
+
+        @Override
+        public double totalInterest(double loanAmount, double interestRate, int tenureYears) {
+            int months = tenureYears * 12;
+            double balance = loanAmount;
+            double paid = 0;
+            for (int from = 0, segment = 0; from < months; from += resetMonths, segment++) {
+                int length = Math.min(resetMonths, months - from);
+                double rate = rateForSegment(interestRate, segment) / 12 / 100;
+                double emi = installment(balance, rate, months - from);
+                double compounded = Math.pow(1 + rate, length);
+                paid += emi * length;
+                balance = rate == 0 ? balance - emi * length : balance * compounded - emi * (compounded - 1) / rate;
+            }
+            return paid - loanAmount;
+        }
+
+        @Override
+        public AmortizationSchedule fill(double loanAmount, double interestRate, int tenureYears, AmortizationSchedule schedule) {
+            int months = tenureYears * 12;
+            schedule.reset(months, 12);
+            schedule.monthlyPayment = monthlyPayment(loanAmount, interestRate, tenureYears);
+            double balance = loanAmount;
+            for (int from = 0, segment = 0; from < months; from += resetMonths, segment++) {
+                double rate = rateForSegment(interestRate, segment) / 12 / 100;
+                double emi = installment(balance, rate, months - from);
+                balance = amortize(schedule, from, Math.min(months, from + resetMonths), balance, rate, emi);
+            }
+            return schedule;
+        }
+    }
+}
+
+// Adapts any LoanProduct to the LoanCalculator interface used by the menus, the HTTP service and bulk ingestion.
+class ProductLoanCalculator implements LoanCalculator {
+    static final int MAX_TENURE_YEARS = 100;
+    static final int MAX_BISECTION_STEPS = 100;
+    // In percent per year.
+    static final double RATE_TOLERANCE = 1e-10;
+
+    private final LoanProduct product;
+
+    public ProductLoanCalculator(LoanProduct product) {
+        this.product = product;
+    }
+
+    public LoanProduct getProduct() {
+        return product;
+    }
+
+    // Timed under HomeLoanCalculator's names, so the metrics read the same whichever calculator is configured.
+    @Override
+    public double calculateMonthlyPayment(double loanAmount, double interestRate, int tenureYears) {
+        long started = HomeLoanCalculator.PAYMENT_TIMER.start();
+        double monthlyPayment = product.monthlyPayment(loanAmount, interestRate, tenureYears);
+        HomeLoanCalculator.PAYMENT_TIMER.stop(started);
+        return monthlyPayment;
+    }
+
+    @Override
+    public double calculateTotalInterest(double loanAmount, double interestRate, int tenureYears) {
+        return product.totalInterest(loanAmount, interestRate, tenureYears);
+    }
+
+    @Override
+    public List<String> generateAmortizationSchedule(double loanAmount, double interestRate, int tenureYears) {
+        return fillAmortizationSchedule(loanAmount, interestRate, tenureYears,
+                new AmortizationSchedule(tenureYears * product.periodsPerYear())).asText();
+    }
+
+    @Override
+    public AmortizationSchedule fillAmortizationSchedule(double loanAmount, double interestRate, int tenureYears, AmortizationSchedule schedule) {
+        long started = HomeLoanCalculator.SCHEDULE_TIMER.start();
+        AmortizationSchedule filled = product.fill(loanAmount, interestRate, tenureYears, schedule);
+        HomeLoanCalculator.SCHEDULE_TIMER.stop(started);
+        return filled;
+    }
+
+    // The annuity defaults would quote a level EMI the product does not charge, so the grid and the what-if solvers
+    // all go through the product. They solve for the first installment, the one monthlyPayment reports.
+    @Override
+    public EmiGrid calculateGrid(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        return EmiGrid.tabulate(loanAmounts, interestRates, tenureYears, this);
+    }
+
+    // Every product's installments scale linearly with the principal.
+    @Override
+    public double maxAffordableLoan(double monthlyPayment, double interestRate, int tenureYears) {
+        return monthlyPayment / product.monthlyPayment(1, interestRate, tenureYears);
+    }
+
+    // Products are defined per year of tenure, so this is the shortest whole number of years, in months.
+    @Override
+    public int tenureMonthsForPayment(double loanAmount, double interestRate, double monthlyPayment) {
+        if (!(loanAmount > 0) || !(monthlyPayment > 0)) {
+            throw new IllegalArgumentException("Loan amount and monthly payment must be positive");
+        }
+        for (int years = 1; years <= MAX_TENURE_YEARS; years++) {
+            if (product.monthlyPayment(loanAmount, interestRate, years) <= monthlyPayment) {
+                return years * 12;
+            }
+        }
+        throw new IllegalArgumentException("Monthly payment " + monthlyPayment + " does not repay " + loanAmount
+                + " within " + MAX_TENURE_YEARS + " years");
+    }
+
+    // Bisection, since no product has a closed-form derivative in the rate; the first installment rises with it.
+    @Override
+    public double rateForPayment(double loanAmount, double monthlyPayment, int tenureYears) {
+        if (!(loanAmount > 0) || !(monthlyPayment > 0) || tenureYears <= 0) {
+            throw new IllegalArgumentException("Loan amount, monthly payment and tenure must be positive");
+        }
+        double low = 0;
+        double high = 100;
+        if (monthlyPayment < product.monthlyPayment(loanAmount, low, tenureYears)
+                || monthlyPayment > product.monthlyPayment(loanAmount, high, tenureYears)) {
+            throw new IllegalArgumentException("Monthly payment " + monthlyPayment + " is not reached by any rate from 0 to 100%");
+        }
+        for (int step = 0; step < MAX_BISECTION_STEPS && high - low > RATE_TOLERANCE; step++) {
+            double mid = (low + high) / 2;
+            if (product.monthlyPayment(loanAmount, mid, tenureYears) < monthlyPayment) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return (low + high) / 2;
+    }
+}
+
+class IncrementalSchedule {
+    enum Mode { REDUCE_TENURE, REDUCE_EMI }
+
+    private static final class Event {
+        final double newRate;
+        final double prepayment;
+        final Mode mode;
+
+        Event(double newRate, double prepayment, Mode mode) {
+            this.newRate = newRate;
+            this.prepayment = prepayment;
+            this.mode = mode;
+        }
+    }
+
+    private final double loanAmount;
+    private final double initialRate;
+    private final int initialMonths;
+    private final TreeMap<Integer, List<Event>> events = new TreeMap<>();
+
+    // Column i holds month i + 1. Months 1..computed are valid; anything later is rebuilt on demand.
+    private double[] rate;
+    private double[] emi;
+    private double[] prepayment;
+    private double[] payment;
+    private double[] interest;
+    private double[] principal;
+    private double[] balance;
+    private int[] endMonth;
+    private int computed;
+    private boolean complete;
+    private long monthsRecomputed;
+
+    public IncrementalSchedule(double loanAmount, double interestRate, int tenureYears) {
+        QuoteService.validate(loanAmount, interestRate, tenureYears);
+        this.loanAmount = loanAmount;
+        this.initialRate = interestRate;
+        this.initialMonths = tenureYears * 12;
+        allocate(initialMonths);
+    }
+
+    private void allocate(int capacity) {
+        rate = grow(rate, capacity);
+        emi = grow(emi, capacity);
+        prepayment = grow(prepayment, capacity);
+        payment = grow(payment, capacity);
+        interest = grow(interest, capacity);
+        principal = grow(principal, capacity);
+        balance = grow(balance, capacity);
+        endMonth = endMonth == null ? new int[capacity] : Arrays.copyOf(endMonth, capacity);
+    }
+
+    private static double[] grow(double[] column, int capacity) {
+        return column == null ? new double[capacity] : Arrays.copyOf(column, capacity);
+    }
+
+    // Months needed to clear the balance at a fixed installment, or -1 if the installment never covers the interest.
+    static int monthsToRepay(double balance, double annualRate, double installment) {
+        double monthlyRate = annualRate / 12 / 100;
+        if (monthlyRate == 0) {
+            return (int) Math.ceil(balance / installment - 1e-9);
+        }
+        double coverage = 1 - balance * monthlyRate / installment;
+        if (coverage <= 0) {
+            return -1;
+        }
+        return Math.max(1, (int) Math.ceil(-Math.log(coverage) / Math.log1p(monthlyRate) - 1e-9));
+    }
+
+    public IncrementalSchedule resetRate(int month, double newRate, Mode mode) {
+        if (!(newRate >= 0) || newRate > 100) {
+            throw new IllegalArgumentException("Interest rate must be between 0 and 100");
+        }
+        return addEvent(month, new Event(newRate, 0, mode));
+    }
+
+    public IncrementalSchedule prepay(int month, double amount, Mode mode) {
+        if (!(amount > 0)) {
+            throw new IllegalArgumentException("Prepayment must be positive");
+        }
+        return addEvent(month, new Event(Double.NaN, amount, mode));
+    }
+
+    private IncrementalSchedule addEvent(int month, Event event) {
+        if (month < 1) {
+            throw new IllegalArgumentException("Event month must be 1 or later");
+        }
+        ensureComputed(month - 1);
+        // computed stops at the payoff month, so a later month is rejected before any column is indexed.
+        if (computed < month - 1 || (month > 1 && balance[month - 2] == 0)) {
+            throw new IllegalArgumentException("Loan is already repaid before month " + month
+                    + " (last installment in month " + computed + ")");
+        }
+        events.computeIfAbsent(month, k -> new ArrayList<>()).add(event);
+        // Only the suffix from the event month onward is discarded; it is rebuilt lazily on the next read.
+        truncate(month - 1);
+        complete = false;
+        return this;
+    }
+
+    // Clears every month after `months` so values from an earlier, longer schedule can never be read back.
+    private void truncate(int months) {
+        int from = Math.min(months, rate.length);
+        for (double[] column : new double[][]{rate, emi, prepayment, payment, interest, principal, balance}) {
+            Arrays.fill(column, from, column.length, 0);
+        }
+        Arrays.fill(endMonth, from, endMonth.length, 0);
+        computed = months;
+    }
+
+    private void ensureComputed(int month) {
+        while (computed < month && !complete) {
+            computeNext();
+        }
+    }
+
+    private void computeNext() {
+        int m = computed + 1;
+        double openingBalance;
+        double currentRate;
+        double currentEmi;
+        int end;
+        if (m == 1) {
+            openingBalance = loanAmount;
+            currentRate = initialRate;
+            end = initialMonths;
+            currentEmi = LoanProducts.installment(loanAmount, initialRate / 12 / 100, initialMonths);
+        } else {
+            openingBalance = balance[m - 2];
+            currentRate = rate[m - 2];
+            currentEmi = emi[m - 2];
+            end = endMonth[m - 2];
+        }
+        double prepaid = 0;
+        List<Event> monthEvents = events.get(m);
+        if (monthEvents != null) {
+            for (Event event : monthEvents) {
+                if (!Double.isNaN(event.newRate)) {
+                    currentRate = event.newRate;
+                }
+                if (event.prepayment > 0) {
+                    double applied = Math.min(event.prepayment, openingBalance);
+                    openingBalance -= applied;
+                    prepaid += applied;
+                }
+                if (openingBalance == 0) {
+                    break;
+                }
+                int remaining = end - m + 1;
+                if (event.mode == Mode.REDUCE_TENURE) {
+                    int months = monthsToRepay(openingBalance, currentRate, currentEmi);
+                    if (months > 0) {
+                        end = m - 1 + months;
+                        continue;
+                    }
+                    // The old installment no longer covers interest at the new rate; re-amortize over the remaining term.
+                }
+                currentEmi = LoanProducts.installment(openingBalance, currentRate / 12 / 100, remaining);
+            }
+        }
+        if (m > rate.length) {
+            allocate(Math.max(m, rate.length * 2));
+        }
+        int i = m - 1;
+        double monthInterest = openingBalance * currentRate / 12 / 100;
+        double monthPrincipal;
+        double monthPayment;
+        if (openingBalance == 0 || m >= end || currentEmi >= openingBalance + monthInterest) {
+            // Final installment absorbs rounding drift so the closing balance is exactly zero.
+            monthPrincipal = openingBalance;
+            monthPayment = openingBalance + monthInterest;
+            end = m;
+            complete = true;
+        } else {
+            monthPrincipal = currentEmi - monthInterest;
+            monthPayment = currentEmi;
+        }
+        rate[i] = currentRate;
+        emi[i] = currentEmi;
+        prepayment[i] = prepaid;
+        payment[i] = monthPayment;
+        interest[i] = monthInterest;
+        principal[i] = monthPrincipal;
+        balance[i] = complete ? 0 : openingBalance - monthPrincipal;
+        endMonth[i] = end;
+        computed = m;
+        monthsRecomputed++;
+    }
+
+    public int getTenureMonths() {
+        ensureComputed(Integer.MAX_VALUE);
+        return computed;
+    }
+
+    public double getTotalInterest() {
+        ensureComputed(Integer.MAX_VALUE);
+        double total = 0;
+        for (int i = 0; i < computed; i++) {
+            total += interest[i];
+        }
+        return total;
+    }
+
+    public AmortizationSchedule fill(AmortizationSchedule schedule) {
+        ensureComputed(Integer.MAX_VALUE);
+        schedule.reset(computed);
+        schedule.monthlyPayment = computed == 0 ? 0 : emi[0];
+        System.arraycopy(principal, 0, schedule.principal, 0, computed);
+        System.arraycopy(interest, 0, schedule.interest, 0, computed);
+        System.arraycopy(balance, 0, schedule.balance, 0, computed);
+        return schedule;
+    }
+
+    // Number of months calculated so far, including recalculations after events.
+    public long getMonthsRecomputed() {
+        return monthsRecomputed;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    // Computes each month only when the cursor reaches it, so a caller that stops early never pays for the rest.
+    class Cursor {
+        private int month;
+
+        public boolean next() {
+            ensureComputed(month + 1);
+            if (month >= computed) {
+                return false;
+            }
+            month++;
+            return true;
+        }
+
+        public int month() {
+            return month;
+        }
+
+        public double rate() {
+            return rate[month - 1];
+        }
+
+        public double payment() {
+            return payment[month - 1];
+        }
+
+        public double prepayment() {
+            return prepayment[month - 1];
+        }
+
+        public double interest() {
+            return interest[month - 1];
+        }
+
+        public double principal() {
+            return principal[month - 1];
+        }
+
+        public double balance() {
+            return balance[month - 1];
+        }
+    }
+}
+
+class LoanBook {
+    final int size;
+    final double[] amounts;
+    final double[] rates;
+    final int[] tenures;
+
+    public LoanBook(double[] amounts, double[] rates, int[] tenures) {
+        this.size = BatchQuoteResult.checkLengths(amounts, rates, tenures);
+        this.amounts = amounts;
+        this.rates = rates;
+        this.tenures = tenures;
+    }
+
+    public static LoanBook of(List<LoanDetails> loans) {
+        int n = loans.size();
+        double[] amounts = new double[n];
+        double[] rates = new double[n];
+        int[] tenures = new int[n];
+        for (int i = 0; i < n; i++) {
+            LoanDetails loan = loans.get(i);
+            amounts[i] = loan.loanAmount;
+            rates[i] = loan.interestRate;
+            tenures[i] = loan.tenureYears;
+        }
+        return new LoanBook(amounts, rates, tenures);
+    }
+
+    public static LoanBook of(LoanSnapshot snapshot) {
+        int n = snapshot.size();
+        double[] amounts = new double[n];
+        double[] rates = new double[n];
+        int[] tenures = new int[n];
+        for (int i = 0; i < n; i++) {
+            amounts[i] = snapshot.loanAmount(i);
+            rates[i] = snapshot.interestRate(i);
+            tenures[i] = snapshot.tenureYears(i);
+        }
+        return new LoanBook(amounts, rates, tenures);
+    }
+}
+
+class PortfolioReport {
+    static final double RATE_BUCKET_WIDTH = 0.5;
+    static final int RATE_BUCKETS = 40;
+    static final int MAX_TENURE_YEARS = 40;
+
+    final int horizonMonths;
+    long loanCount;
+    double totalPrincipal;
+    double totalMonthlyPayment;
+    double lifetimeInterest;
+    // outstandingPrincipal[m] is the balance left after m installments; index 0 is the amount lent.
+    final double[] outstandingPrincipal;
+    final double[] interestIncome;
+    // The last rate bucket and tenure slot collect everything above the range.
+    final long[] rateBucketCounts = new long[RATE_BUCKETS];
+    final double[] rateBucketPrincipal = new double[RATE_BUCKETS];
+    final long[] tenureCounts = new long[MAX_TENURE_YEARS + 1];
+    final double[] tenurePrincipal = new double[MAX_TENURE_YEARS + 1];
+
+    PortfolioReport(int horizonMonths) {
+        this.horizonMonths = horizonMonths;
+        this.outstandingPrincipal = new double[horizonMonths + 1];
+        this.interestIncome = new double[horizonMonths];
+    }
+
+    void merge(PortfolioReport other) {
+        loanCount += other.loanCount;
+        totalPrincipal += other.totalPrincipal;
+        totalMonthlyPayment += other.totalMonthlyPayment;
+        lifetimeInterest += other.lifetimeInterest;
+        add(outstandingPrincipal, other.outstandingPrincipal);
+        add(interestIncome, other.interestIncome);
+        add(rateBucketPrincipal, other.rateBucketPrincipal);
+        add(tenurePrincipal, other.tenurePrincipal);
+        for (int i = 0; i < rateBucketCounts.length; i++) {
+            rateBucketCounts[i] += other.rateBucketCounts[i];
+        }
+        for (int i = 0; i < tenureCounts.length; i++) {
+            tenureCounts[i] += other.tenureCounts[i];
+        }
+    }
+
+    private static void add(double[] target, double[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    public double projectedInterestIncome(int years) {
+        double total = 0;
+        for (int m = 0; m < Math.min(years * 12, horizonMonths); m++) {
+            total += interestIncome[m];
+        }
+        return total;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Loans: %,d  Principal lent: %,.2f  Monthly EMI inflow: %,.2f  Lifetime interest: %,.2f%n",
+                loanCount, totalPrincipal, totalMonthlyPayment, lifetimeInterest);
+        out.println("---Outstanding Principal and Interest Income by Year---");
+        for (int year = 1; year * 12 <= horizonMonths; year++) {
+            double income = 0;
+            for (int m = (year - 1) * 12; m < year * 12; m++) {
+                income += interestIncome[m];
+            }
+            out.printf("Year %2d: Outstanding: %,20.2f  Interest Income: %,18.2f%n", year, outstandingPrincipal[year * 12], income);
+        }
+        out.println("---Distribution by Interest Rate---");
+        for (int i = 0; i < RATE_BUCKETS; i++) {
+            if (rateBucketCounts[i] > 0) {
+                String label = i == RATE_BUCKETS - 1
+                        ? String.format(">= %.1f%%", i * RATE_BUCKET_WIDTH)
+                        : String.format("%.1f-%.1f%%", i * RATE_BUCKET_WIDTH, (i + 1) * RATE_BUCKET_WIDTH);
+                out.printf("%-12s Loans: %,10d  Principal: %,20.2f%n", label, rateBucketCounts[i], rateBucketPrincipal[i]);
+            }
+        }
+        out.println("---Distribution by Tenure---");
+        for (int t = 0; t <= MAX_TENURE_YEARS; t++) {
+            if (tenureCounts[t] > 0) {
+                String label = t == MAX_TENURE_YEARS ? ">= " + t + " years" : t + " years";
+                out.printf("%-12s Loans: %,10d  Principal: %,20.2f%n", label, tenureCounts[t], tenurePrincipal[t]);
+            }
+        }
+    }
+}
+
+class PortfolioAnalytics {
+    static final int LEAF_SIZE = 8192;
+
+    public static PortfolioReport analyze(LoanBook book, int horizonYears) {
+        int horizonMonths = horizonYears * 12;
+        if (book.size == 0) {
+            return new PortfolioReport(horizonMonths);
+        }
+        return ForkJoinPool.commonPool().invoke(new Task(book, horizonMonths, 0, book.size));
+    }
+
+    private static final class Task extends RecursiveTask<PortfolioReport> {
+        private static final long serialVersionUID = 1L;
+
+        private final LoanBook book;
+        private final int horizonMonths;
+        private final int from;
+        private final int to;
+
+        Task(LoanBook book, int horizonMonths, int from, int to) {
+            this.book = book;
+            this.horizonMonths = horizonMonths;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected PortfolioReport compute() {
+            if (to - from <= LEAF_SIZE) {
+                return computeLeaf(book, horizonMonths, from, to);
+            }
+            int mid = (from + to) >>> 1;
+            Task left = new Task(book, horizonMonths, from, mid);
+            left.fork();
+            PortfolioReport right = new Task(book, horizonMonths, mid, to).compute();
+            PortfolioReport result = left.join();
+            result.merge(right);
+            return result;
+        }
+    }
+
+    // Every loan is projected from its first installment; the Loans table has no origination date to offset by.
+    static PortfolioReport computeLeaf(LoanBook book, int horizonMonths, int from, int to) {
+        PortfolioReport report = new PortfolioReport(horizonMonths);
+        double[] outstanding = report.outstandingPrincipal;
+        double[] income = report.interestIncome;
+        for (int i = from; i < to; i++) {
+            double amount = book.amounts[i];
+            double annualRate = book.rates[i];
+            int tenureYears = book.tenures[i];
+            int tenureMonths = tenureYears * 12;
+            double monthlyRate = annualRate / 12 / 100;
+            double emi = amount * AnnuityFactorCache.computeFactor(annualRate, tenureYears);
+            report.loanCount++;
+            report.totalPrincipal += amount;
+            report.totalMonthlyPayment += emi;
+            report.lifetimeInterest += emi * tenureMonths - amount;
+            int rateBucket = (int) Math.min(PortfolioReport.RATE_BUCKETS - 1, Math.max(0, annualRate / PortfolioReport.RATE_BUCKET_WIDTH));
+            report.rateBucketCounts[rateBucket]++;
+            report.rateBucketPrincipal[rateBucket] += amount;
+            int tenureSlot = Math.min(PortfolioReport.MAX_TENURE_YEARS, Math.max(0, tenureYears));
+            report.tenureCounts[tenureSlot]++;
+            report.tenurePrincipal[tenureSlot] += amount;
+
+            outstanding[0] += amount;
+            double balance = amount;
+            int months = Math.min(tenureMonths, horizonMonths);
+            for (int m = 1; m <= months; m++) {
+                double interest = balance * monthlyRate;
+                balance -= emi - interest;
+                income[m - 1] += interest;
+                outstanding[m] += balance;
+            }
+            if (months == tenureMonths && months > 0) {
+                // Clear the floating-point residue left after the final installment.
+                outstanding[months] -= balance;
+            }
+        }
+        return report;
+    }
+}
+
+class ConnectionPool implements AutoCloseable {
+    static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long validateAfterIdleMillis;
+    private final int validationTimeoutSeconds;
+    private final long borrowTimeoutMillis;
+    private final Semaphore permits;
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final ScheduledExecutorService evictor;
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, String user, String password, int maxSize, long idleTimeoutMillis,
+                          long validateAfterIdleMillis, int validationTimeoutSeconds, long borrowTimeoutMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, idleTimeoutMillis / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private final class PooledConnection {
+        final Connection physical;
+        final Map<String, CachedStatement> statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > STATEMENT_CACHE_SIZE) {
+                    closeQuietly(eldest.getValue().statement);
+                    return true;
+                }
+                return false;
+            }
+        };
+        long lastReleased = System.currentTimeMillis();
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+    }
+
+    private static final class CachedStatement {
+        final PreparedStatement statement;
+        PreparedStatement proxy;
+        boolean inUse;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for one of " + maxSize + " pooled connections");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection", e);
+        }
+        try {
+            return lease(acquire());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PooledConnection acquire() throws SQLException {
+        while (true) {
+            PooledConnection pooled;
+            synchronized (idle) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                created.incrementAndGet();
+                return new PooledConnection(DriverManager.getConnection(url, user, password));
+            }
+            boolean stale = System.currentTimeMillis() - pooled.lastReleased > validateAfterIdleMillis;
+            if (!stale || pooled.physical.isValid(validationTimeoutSeconds)) {
+                return pooled;
+            }
+            discard(pooled);
+        }
+    }
+
+    private Connection lease(PooledConnection pooled) {
+        boolean[] released = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("close")) {
+                        if (!released[0]) {
+                            released[0] = true;
+                            release(pooled);
+                        }
+                        return null;
+                    }
+                    if (name.equals("isClosed")) {
+                        return released[0] || pooled.physical.isClosed();
+                    }
+                    if (released[0]) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (name.equals("prepareStatement") && args.length <= 2 && args[0] instanceof String
+                            && (args.length == 1 || method.getParameterTypes()[1] == int.class)) {
+                        int generatedKeys = args.length == 1 ? Statement.NO_GENERATED_KEYS : (Integer) args[1];
+                        return prepareCached(pooled, (String) args[0], generatedKeys);
+                    }
+                    try {
+                        return method.invoke(pooled.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private PreparedStatement prepareCached(PooledConnection pooled, String sql, int generatedKeys) throws SQLException {
+        String key = generatedKeys + ":" + sql;
+        CachedStatement cached = pooled.statements.get(key);
+        if (cached != null && cached.inUse) {
+            // The same SQL is already open on this lease; hand out an uncached statement rather than sharing it.
+            return pooled.physical.prepareStatement(sql, generatedKeys);
+        }
+        if (cached == null) {
+            cached = new CachedStatement(pooled.physical.prepareStatement(sql, generatedKeys));
+            cached.proxy = statementProxy(cached);
+            pooled.statements.put(key, cached);
+        }
+        cached.inUse = true;
+        return cached.proxy;
+    }
+
+    private static PreparedStatement statementProxy(CachedStatement cached) {
+        return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.equals("close")) {
+                        if (cached.inUse) {
+                            cached.inUse = false;
+                            cached.statement.clearParameters();
+                            cached.statement.clearBatch();
+                        }
+                        return null;
+                    }
+                    if (name.equals("isClosed")) {
+                        return !cached.inUse || cached.statement.isClosed();
+                    }
+                    if (name.equals("getConnection")) {
+                        throw new SQLFeatureNotSupportedException("getConnection is not available on pooled statements");
+                    }
+                    try {
+                        return method.invoke(cached.statement, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private void release(PooledConnection pooled) {
+        try {
+            for (CachedStatement cached : pooled.statements.values()) {
+                cached.inUse = false;
+            }
+            if (!pooled.physical.getAutoCommit()) {
+                pooled.physical.rollback();
+                pooled.physical.setAutoCommit(true);
+            }
+            pooled.physical.clearWarnings();
+            pooled.lastReleased = System.currentTimeMillis();
+            if (closed) {
+                discard(pooled);
+            } else {
+                synchronized (idle) {
+                    idle.offerFirst(pooled);
+                }
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        for (CachedStatement cached : pooled.statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        closeQuietly(pooled.physical);
+    }
+
+    void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMillis;
+        List<PooledConnection> expired = new ArrayList<>();
+        synchronized (idle) {
+            // Most recently released connections sit at the head, so expired ones collect at the tail.
+            while (!idle.isEmpty() && idle.peekLast().lastReleased < cutoff) {
+                expired.add(idle.pollLast());
+            }
+        }
+        for (PooledConnection pooled : expired) {
+            evicted.incrementAndGet();
+            discard(pooled);
+        }
+    }
+
+    // Opens physical connections until `target` are idle, so the first borrowers skip the connect handshake. Never
+    // waits for a permit: connections already lent out count against maxSize and are simply not duplicated.
+    public int prewarm(int target) throws SQLException {
+        int opened = 0;
+        while (!closed && getIdleCount() < Math.min(target, maxSize) && permits.tryAcquire()) {
+            try {
+                created.incrementAndGet();
+                PooledConnection pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+                synchronized (idle) {
+                    if (closed) {
+                        discard(pooled);
+                        break;
+                    }
+                    idle.offerLast(pooled);
+                }
+                opened++;
+            } finally {
+                permits.release();
+            }
+        }
+        return opened;
+    }
+
+    // Closes every idle connection but leaves the pool open; later borrowers reconnect on demand. Used before a
+    // checkpoint, where open sockets cannot be carried over into the restored process.
+    public int closeIdle() {
+        List<PooledConnection> drained;
+        synchronized (idle) {
+            drained = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : drained) {
+            discard(pooled);
+        }
+        return drained.size();
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // already broken; nothing more to release
+        }
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    public long getEvictedCount() {
+        return evicted.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        List<PooledConnection> remaining;
+        synchronized (idle) {
+            remaining = new ArrayList<>(idle);
+            idle.clear();
+        }
+        for (PooledConnection pooled : remaining) {
+            discard(pooled);
+        }
+    }
+}
+
+// Everything the application persists, behind one interface so the JDBC database can be swapped for the embedded
+// store. Both implementations are held to the same behaviour by LoanStoreContract.
+interface LoanStore extends AutoCloseable {
+    final class UserRecord {
+        final int id;
+        final String name;
+        final String password;
+
+        UserRecord(int id, String name, String password) {
+            this.id = id;
+            this.name = name;
+            this.password = password;
+        }
+    }
+
+    void createSchema() throws SQLException, ClassNotFoundException;
+
+    // All rows or none; a loan_id that already exists fails the whole call.
+    void insertBatch(List<LoanDetails> loans, List<BorrowerDetails> borrowers) throws SQLException, ClassNotFoundException;
+
+    // Stores the customer and returns (and sets) the id assigned to it.
+    int insertBorrower(BorrowerDetails borrower) throws SQLException, ClassNotFoundException;
+
+    // Stores the customers, then each loan under the id its customer was given, all in one transaction.
+    void insertApplications(List<BorrowerDetails> borrowers, List<LoanDetails> loans) throws SQLException, ClassNotFoundException;
+
+    LoanDetails findLoan(int loanId) throws SQLException, ClassNotFoundException;
+
+    BorrowerDetails findBorrower(int customerId) throws SQLException, ClassNotFoundException;
+
+    // Visits matching loans in loan_id order; the handler receives one reused LoanDetails.
+    void scanLoans(LoanQueryFilter filter, int pageSize, LoanRowHandler handler) throws SQLException, ClassNotFoundException, IOException;
+
+    // Removes the loans and the customers sharing their ids in one transaction; returns the number of loans removed.
+    int deleteLoans(int[] loanIds) throws SQLException, ClassNotFoundException;
+
+    int insertUser(String name, String passwordHash) throws SQLException, ClassNotFoundException;
+
+    List<UserRecord> findUsersByName(String name) throws SQLException, ClassNotFoundException;
+
+    void updatePassword(int userId, String passwordHash) throws SQLException, ClassNotFoundException;
+
+    // Empties every table; used by the conformance checks and benchmarks.
+    void clear() throws SQLException, ClassNotFoundException;
+
+    @Override
+    void close();
+}
+
+class JdbcLoanStore implements LoanStore {
+    static final Metrics.Timer CREATE_TABLES_TIMER = Metrics.timer("sql.createTables");
+    static final Metrics.Timer SELECT_LOAN_TIMER = Metrics.timer("sql.selectLoan");
+    static final Metrics.Timer SELECT_CUSTOMER_TIMER = Metrics.timer("sql.selectCustomer");
+    static final Metrics.Timer LOAN_PAGE_TIMER = Metrics.timer("sql.selectLoanPage");
+
+    static final String INSERT_LOAN_SQL = "INSERT INTO Loans  VALUES (?,?, ?, ?, ?, ?)";
+    static final String INSERT_CUSTOMER_SQL = "INSERT INTO Customer (customer_name, email, phone_number) VALUES ( ?, ?, ?)";
+
+    interface ConnectionSource {
+        Connection get() throws SQLException, ClassNotFoundException;
+    }
+
+    private final ConnectionSource connections;
+
+    public JdbcLoanStore(ConnectionSource connections) {
+        this.connections = connections;
+    }
+
+    // Bumped whenever a migration is appended to migrate(); a database already at this version skips all DDL.
+    static final int SCHEMA_VERSION = 4;
+
+    @Override
+    public void createSchema() throws SQLException, ClassNotFoundException {
+        long started = CREATE_TABLES_TIMER.start();
+        try (Connection conn = connections.get()) {
+            int version = schemaVersion(conn);
+            if (version < SCHEMA_VERSION) {
+                migrate(conn, version);
+                recordSchemaVersion(conn);
+            }
+        } catch (SQLException e) {
+            CREATE_TABLES_TIMER.error();
+            throw e;
+        } finally {
+            CREATE_TABLES_TIMER.stop(started);
+        }
+    }
+
+    // 0 when schema_meta does not exist yet: either an empty database or one created before versioning, so every
+    // migration is written to be safe against tables that already exist.
+    static int schemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version FROM schema_meta WHERE id = 1")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLSyntaxErrorException e) {
+            return 0;
+        }
+    }
+
+    private static void migrate(Connection conn, int version) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            if (version < 1) {
+                String createLoansTable = "CREATE TABLE IF NOT EXISTS Loans (" +
+                        "loan_id INTEGER  PRIMARY KEY ," +
+                        "loan_amount DECIMAL(15,2)," +
+                        "interest_rate DECIMAL(7,4)," +
+                        "tenure_years INTEGER," +
+                        "monthly_payment DECIMAL(15,2)," +
+                        "total_interest DECIMAL(15,2))";
+                String createCustomerTable = "CREATE TABLE IF NOT EXISTS Customer (" +
+                        "customer_id INTEGER AUTO_INCREMENT PRIMARY KEY," +
+                        "customer_name VARCHAR(50)," +
+                        "email VARCHAR(50)," +
+                        "phone_number VARCHAR(50))";
+
+                String createadminTable="CREATE TABLE IF NOT EXISTS User ("+
+                "id INT  AUTO_INCREMENT PRIMARY KEY,"   +
+                "name VARCHAR(50) NOT NULL,"+
+                       "password VARCHAR(" + PasswordHasher.STORED_LENGTH + ") NOT NULL)";
+
+                stmt.execute(createLoansTable);
+                stmt.execute(createCustomerTable);
+                stmt.execute(createadminTable);
+                ensureIndex(conn, "User", "idx_user_login", "CREATE INDEX idx_user_login ON User (name, password)");
+            }
+            if (version < 2) {
+                // Tables created before fixed-point quotes stored amounts as DOUBLE; columns that are already DECIMAL,
+                // including everything version 1 just created, are left alone. One column per statement, since a
+                // comma-separated MODIFY list is MySQL-only.
+                String[][] decimalColumns = {
+                        {"loan_amount", "DECIMAL(15,2)"},
+                        {"interest_rate", "DECIMAL(7,4)"},
+                        {"monthly_payment", "DECIMAL(15,2)"},
+                        {"total_interest", "DECIMAL(15,2)"},
+                };
+                for (String[] column : decimalColumns) {
+                    ensureDecimalColumn(conn, "Loans", column[0],
+                            "ALTER TABLE Loans MODIFY " + column[0] + " " + column[1]);
+                }
+            }
+            if (version < 3) {
+                ensureColumnSize(conn, "User", "password", PasswordHasher.STORED_LENGTH,
+                        "ALTER TABLE User MODIFY password VARCHAR(" + PasswordHasher.STORED_LENGTH + ") NOT NULL");
+            }
+            if (version < 4) {
+                // Salted hashes never collide, and the constraint only told a new user that a password was taken.
+                dropUniqueConstraints(conn, "User", "password");
+            }
+        }
+    }
+
+    // Drops every single-column UNIQUE constraint on the column, whatever name the database gave it. DROP CONSTRAINT
+    // needs MySQL 8.0.19 or later.
+    private static void dropUniqueConstraints(Connection conn, String table, String column) throws SQLException {
+        Map<String, List<String>> columnsByConstraint = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT tc.CONSTRAINT_NAME, kcu.COLUMN_NAME"
+                + " FROM INFORMATION_SCHEMA.TABLE_CONSTRAINTS tc JOIN INFORMATION_SCHEMA.KEY_COLUMN_USAGE kcu"
+                + " ON kcu.CONSTRAINT_SCHEMA = tc.CONSTRAINT_SCHEMA AND kcu.CONSTRAINT_NAME = tc.CONSTRAINT_NAME"
+                + " AND kcu.TABLE_NAME = tc.TABLE_NAME"
+                + " WHERE tc.CONSTRAINT_TYPE = 'UNIQUE' AND tc.TABLE_SCHEMA = SCHEMA() AND UPPER(tc.TABLE_NAME) = ?")) {
+            pstmt.setString(1, table.toUpperCase());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    columnsByConstraint.computeIfAbsent(rs.getString(1), name -> new ArrayList<>()).add(rs.getString(2));
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            for (Map.Entry<String, List<String>> constraint : columnsByConstraint.entrySet()) {
+                List<String> columns = constraint.getValue();
+                if (columns.size() == 1 && columns.get(0).equalsIgnoreCase(column)) {
+                    stmt.execute("ALTER TABLE " + table + " DROP CONSTRAINT " + constraint.getKey());
+                }
+            }
+        }
+    }
+
+    private static void recordSchemaVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_meta (id INTEGER PRIMARY KEY, version INTEGER NOT NULL)");
+        }
+        try (PreparedStatement update = conn.prepareStatement("UPDATE schema_meta SET version = ? WHERE id = 1")) {
+            update.setInt(1, SCHEMA_VERSION);
+            if (update.executeUpdate() == 0) {
+                try (PreparedStatement insert = conn.prepareStatement("INSERT INTO schema_meta (id, version) VALUES (1, ?)")) {
+                    insert.setInt(1, SCHEMA_VERSION);
+                    insert.executeUpdate();
+                }
+            }
+        }
+    }
+
+    // Widens a column created by an older version of the schema; the current size is read from the metadata.
+    private static void ensureColumnSize(Connection conn, String table, String column, int size, String ddl) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase(), table.toLowerCase()}) {
+            try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, name, null)) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                        if (rs.getInt("COLUMN_SIZE") < size) {
+                            try (Statement stmt = conn.createStatement()) {
+                                stmt.execute(ddl);
+                            }
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    // Converts a column created by an older version of the schema to DECIMAL; the current type is read from the metadata.
+    private static void ensureDecimalColumn(Connection conn, String table, String column, String ddl) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase(), table.toLowerCase()}) {
+            try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, name, null)) {
+                while (rs.next()) {
+                    if (column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                        int type = rs.getInt("DATA_TYPE");
+                        if (type != Types.DECIMAL && type != Types.NUMERIC) {
+                            try (Statement stmt = conn.createStatement()) {
+                                stmt.execute(ddl);
+                            }
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    // MySQL has no CREATE INDEX IF NOT EXISTS, so existing indexes are looked up through the metadata instead.
+    private static void ensureIndex(Connection conn, String table, String indexName, String ddl) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        for (String name : new String[]{table, table.toUpperCase(), table.toLowerCase()}) {
+            try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, name, false, true)) {
+                while (rs.next()) {
+                    if (indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return;
+                    }
+                }
+            }
+        }
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(ddl);
+        }
+    }
+
+    private static void bindLoan(PreparedStatement pstmt, LoanDetails loan) throws SQLException {
+        pstmt.setInt(1, loan.loanId);
+        pstmt.setBigDecimal(2, decimal(loan.loanAmount, 2));
+        pstmt.setBigDecimal(3, decimal(loan.interestRate, 4));
+        pstmt.setInt(4, loan.tenureYears);
+        pstmt.setBigDecimal(5, decimal(loan.monthlyPayment, 2));
+        pstmt.setBigDecimal(6, decimal(loan.totalInterest, 2));
+    }
+
+    // Rounds to the column scale here so the database never truncates.
+    private static BigDecimal decimal(double value, int scale) {
+        return BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_EVEN);
+    }
+
+    private static void bindBorrower(PreparedStatement pstmt, BorrowerDetails borrower) throws SQLException {
+        pstmt.setString(1, borrower.borrowerName);
+        pstmt.setString(2, borrower.email);
+        pstmt.setString(3, borrower.phoneNumber);
+    }
+
+    @Override
+    public void insertBatch(List<LoanDetails> loans, List<BorrowerDetails> borrowers) throws SQLException, ClassNotFoundException {
+        try (Connection conn = connections.get()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement loanStmt = conn.prepareStatement(INSERT_LOAN_SQL);
+                 PreparedStatement customerStmt = conn.prepareStatement(INSERT_CUSTOMER_SQL)) {
+                for (LoanDetails loan : loans) {
+                    bindLoan(loanStmt, loan);
+                    loanStmt.addBatch();
+                }
+                for (BorrowerDetails borrower : borrowers) {
+                    bindBorrower(customerStmt, borrower);
+                    customerStmt.addBatch();
+                }
+                if (!loans.isEmpty()) {
+                    loanStmt.executeBatch();
+                }
+                if (!borrowers.isEmpty()) {
+                    customerStmt.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int insertBorrower(BorrowerDetails borrower) throws SQLException, ClassNotFoundException {
+        try (Connection conn = connections.get();
+             PreparedStatement pstmt = conn.prepareStatement(INSERT_CUSTOMER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindBorrower(pstmt, borrower);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    borrower.borrowerId = keys.getInt(1);
+                }
+            }
+        }
+        return borrower.borrowerId;
+    }
+
+    @Override
+    public void insertApplications(List<BorrowerDetails> borrowers, List<LoanDetails> loans) throws SQLException, ClassNotFoundException {
+        if (borrowers.size() != loans.size()) {
+            throw new IllegalArgumentException(borrowers.size() + " customers for " + loans.size() + " loans");
+        }
+        try (Connection conn = connections.get()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement customerStmt = conn.prepareStatement(INSERT_CUSTOMER_SQL, Statement.RETURN_GENERATED_KEYS);
+                 PreparedStatement loanStmt = conn.prepareStatement(INSERT_LOAN_SQL)) {
+                for (BorrowerDetails borrower : borrowers) {
+                    bindBorrower(customerStmt, borrower);
+                    customerStmt.addBatch();
+                }
+                customerStmt.executeBatch();
+                int keys = 0;
+                try (ResultSet generated = customerStmt.getGeneratedKeys()) {
+                    while (generated.next() && keys < borrowers.size()) {
+                        borrowers.get(keys++).borrowerId = generated.getInt(1);
+                    }
+                }
+                if (keys != borrowers.size()) {
+                    throw new SQLException("Driver returned " + keys + " generated keys for " + borrowers.size() + " customers");
+                }
+                for (int i = 0; i < loans.size(); i++) {
+                    LoanDetails loan = loans.get(i);
+                    loan.loanId = borrowers.get(i).borrowerId;
+                    bindLoan(loanStmt, loan);
+                    loanStmt.addBatch();
+                }
+                loanStmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public LoanDetails findLoan(int loanId) throws SQLException, ClassNotFoundException {
+        long started = SELECT_LOAN_TIMER.start();
+        try {
+            String query = "SELECT * FROM Loans WHERE loan_id = ?";
+            try (Connection conn = connections.get();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setInt(1, loanId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        LoanDetails loan = new LoanDetails(
+                                rs.getInt("loan_id"),
+                                rs.getDouble("loan_amount"),
+                                rs.getDouble("interest_rate"),
+                                rs.getInt("tenure_years")
+                        );
+                        loan.monthlyPayment = rs.getDouble("monthly_payment");
+                        loan.totalInterest = rs.getDouble("total_interest");
+                        return loan;
+                    }
+                }
+            }
+            return null;
+        } catch (SQLException e) {
+            SELECT_LOAN_TIMER.error();
+            throw e;
+        } finally {
+            SELECT_LOAN_TIMER.stop(started);
+        }
+    }
+
+    @Override
+    public BorrowerDetails findBorrower(int customerId) throws SQLException, ClassNotFoundException {
+        long started = SELECT_CUSTOMER_TIMER.start();
+        try {
+            String query = "SELECT * FROM Customer WHERE customer_id = ?";
+            try (Connection conn = connections.get();
+                 PreparedStatement pstmt = conn.prepareStatement(query)) {
+                pstmt.setInt(1, customerId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        return new BorrowerDetails(
+                                rs.getInt("customer_id"),
+                                rs.getString("customer_name"),
+                                rs.getString("email"),
+                                rs.getString("phone_number")
+                        );
+                    }
+                }
+            }
+            return null;
+        } catch (SQLException e) {
+            SELECT_CUSTOMER_TIMER.error();
+            throw e;
+        } finally {
+            SELECT_CUSTOMER_TIMER.stop(started);
+        }
+    }
+
+    // Keyset pagination on the primary key: each page restarts after the last loan_id seen, so memory stays
+    // constant and no page gets slower as the offset grows.
+    @Override
+    public void scanLoans(LoanQueryFilter filter, int pageSize, LoanRowHandler handler)
+            throws SQLException, ClassNotFoundException, IOException {
+        StringBuilder sql = new StringBuilder("SELECT loan_id, loan_amount, interest_rate, tenure_years, monthly_payment, total_interest"
+                + " FROM Loans WHERE loan_id > ?");
+        if (filter.hasRateRange()) {
+            sql.append(" AND interest_rate BETWEEN ? AND ?");
+        }
+        if (filter.hasTenureRange()) {
+            sql.append(" AND tenure_years BETWEEN ? AND ?");
+        }
+        sql.append(" ORDER BY loan_id LIMIT ?");
+        LoanDetails row = new LoanDetails(0, 0, 0, 0);
+        int lastId = Integer.MIN_VALUE;
+        try (Connection conn = connections.get();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            pstmt.setFetchSize(pageSize);
+            while (true) {
+                int param = 1;
+                pstmt.setInt(param++, lastId);
+                if (filter.hasRateRange()) {
+                    pstmt.setDouble(param++, filter.minRate);
+                    pstmt.setDouble(param++, filter.maxRate);
+                }
+                if (filter.hasTenureRange()) {
+                    pstmt.setInt(param++, filter.minTenure);
+                    pstmt.setInt(param++, filter.maxTenure);
+                }
+                pstmt.setInt(param, pageSize);
+                int count = 0;
+                long started = LOAN_PAGE_TIMER.start();
+                ResultSet page;
+                try {
+                    page = pstmt.executeQuery();
+                } catch (SQLException e) {
+                    LOAN_PAGE_TIMER.error();
+                    throw e;
+                } finally {
+                    LOAN_PAGE_TIMER.stop(started);
+                }
+                try (ResultSet rs = page) {
+                    while (rs.next()) {
+                        row.loanId = rs.getInt(1);
+                        row.loanAmount = rs.getDouble(2);
+                        row.interestRate = rs.getDouble(3);
+                        row.tenureYears = rs.getInt(4);
+                        row.monthlyPayment = rs.getDouble(5);
+                        row.totalInterest = rs.getDouble(6);
+                        handler.accept(row);
+                        lastId = row.loanId;
+                        count++;
+                    }
+                }
+                if (count < pageSize) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int deleteLoans(int[] loanIds) throws SQLException, ClassNotFoundException {
+        try (Connection conn = connections.get();
+             PreparedStatement loanStmt = conn.prepareStatement("DELETE FROM Loans WHERE loan_id = ?");
+             PreparedStatement customerStmt = conn.prepareStatement("DELETE FROM Customer WHERE customer_id = ?")) {
+            conn.setAutoCommit(false);
+            try {
+                for (int loanId : loanIds) {
+                    loanStmt.setInt(1, loanId);
+                    loanStmt.addBatch();
+                    customerStmt.setInt(1, loanId);
+                    customerStmt.addBatch();
+                }
+                int[] counts = loanStmt.executeBatch();
+                customerStmt.executeBatch();
+                conn.commit();
+                int deleted = 0;
+                for (int count : counts) {
+                    deleted += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+                }
+                return deleted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public int insertUser(String name, String passwordHash) throws SQLException, ClassNotFoundException {
+        try (Connection conn = connections.get();
+             PreparedStatement pstmt = conn.prepareStatement("INSERT INTO User(name,password) VALUES(?,?)", Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, name);
+            pstmt.setString(2, passwordHash);
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
+        }
+    }
+
+    @Override
+    public List<UserRecord> findUsersByName(String name) throws SQLException, ClassNotFoundException {
+        List<UserRecord> users = new ArrayList<>(1);
+        try (Connection conn = connections.get();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT id, password FROM User WHERE name = ?")) {
+            pstmt.setString(1, name);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    users.add(new UserRecord(rs.getInt(1), name, rs.getString(2)));
+                }
+            }
+        }
+        return users;
+    }
+
+    @Override
+    public void updatePassword(int userId, String passwordHash) throws SQLException, ClassNotFoundException {
+        try (Connection conn = connections.get();
+             PreparedStatement pstmt = conn.prepareStatement("UPDATE User SET password = ? WHERE id = ?")) {
+            pstmt.setString(1, passwordHash);
+            pstmt.setInt(2, userId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public void clear() throws SQLException, ClassNotFoundException {
+        try (Connection conn = connections.get();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM Loans");
+            stmt.executeUpdate("DELETE FROM Customer");
+            stmt.executeUpdate("DELETE FROM User");
+        }
+    }
+
+    // Connections belong to the pool, which DatabaseManager closes.
+    @Override
+    public void close() {
+    }
+}
+
+// Heap-only store with the same contract as the database: loans ordered by id for scans, generated customer and user
+// ids and unique loan ids. Writes serialize on the store so batches stay atomic; reads never lock.
+// Nothing survives a restart, which suits benchmarks, load tests and edge nodes that rebuild from a snapshot.
+class InMemoryLoanStore implements LoanStore {
+    private final ConcurrentSkipListMap<Integer, LoanDetails> loans = new ConcurrentSkipListMap<>();
+    private final Map<Integer, BorrowerDetails> customers = new ConcurrentHashMap<>();
+    private final Map<Integer, UserRecord> users = new ConcurrentHashMap<>();
+    // Name -> user ids in id order, so a login does not scan every user. Written under this with users.
+    private final Map<String, Set<Integer>> userIdsByName = new ConcurrentHashMap<>();
+    private int nextCustomerId = 1;
+    private int nextUserId = 1;
+
+    static LoanDetails copy(LoanDetails loan) {
+        LoanDetails copy = new LoanDetails(loan.loanId, loan.loanAmount, loan.interestRate, loan.tenureYears);
+        copy.monthlyPayment = loan.monthlyPayment;
+        copy.totalInterest = loan.totalInterest;
+        return copy;
+    }
+
+    static BorrowerDetails copy(BorrowerDetails borrower, int borrowerId) {
+        return new BorrowerDetails(borrowerId, borrower.borrowerName, borrower.email, borrower.phoneNumber);
+    }
+
+    private void checkNewLoanIds(IntStream loanIds) throws SQLException {
+        Set<Integer> seen = new HashSet<>();
+        for (int loanId : loanIds.toArray()) {
+            if (loans.containsKey(loanId) || !seen.add(loanId)) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate entry '" + loanId + "' for key 'Loans.PRIMARY'");
+            }
+        }
+    }
+
+    @Override
+    public void createSchema() {
+    }
+
+    @Override
+    public synchronized void insertBatch(List<LoanDetails> loans, List<BorrowerDetails> borrowers) throws SQLException {
+        checkNewLoanIds(loans.stream().mapToInt(loan -> loan.loanId));
+        for (LoanDetails loan : loans) {
+            this.loans.put(loan.loanId, copy(loan));
+        }
+        for (BorrowerDetails borrower : borrowers) {
+            int id = nextCustomerId++;
+            customers.put(id, copy(borrower, id));
+        }
+    }
+
+    @Override
+    public synchronized int insertBorrower(BorrowerDetails borrower) {
+        borrower.borrowerId = nextCustomerId++;
+        customers.put(borrower.borrowerId, copy(borrower, borrower.borrowerId));
+        return borrower.borrowerId;
+    }
+
+    @Override
+    public synchronized void insertApplications(List<BorrowerDetails> borrowers, List<LoanDetails> loans) throws SQLException {
+        if (borrowers.size() != loans.size()) {
+            throw new IllegalArgumentException(borrowers.size() + " customers for " + loans.size() + " loans");
+        }
+        int firstId = nextCustomerId;
+        checkNewLoanIds(IntStream.range(firstId, firstId + borrowers.size()));
+        for (int i = 0; i < borrowers.size(); i++) {
+            BorrowerDetails borrower = borrowers.get(i);
+            LoanDetails loan = loans.get(i);
+            borrower.borrowerId = nextCustomerId++;
+            customers.put(borrower.borrowerId, copy(borrower, borrower.borrowerId));
+            loan.loanId = borrower.borrowerId;
+            this.loans.put(loan.loanId, copy(loan));
+        }
+    }
+
+    @Override
+    public LoanDetails findLoan(int loanId) {
+        LoanDetails loan = loans.get(loanId);
+        return loan == null ? null : copy(loan);
+    }
+
+    @Override
+    public BorrowerDetails findBorrower(int customerId) {
+        BorrowerDetails borrower = customers.get(customerId);
+        return borrower == null ? null : copy(borrower, borrower.borrowerId);
+    }
+
+    // Keyset pages like the JDBC store: each page collects up to pageSize matching loans after the last loan_id seen
+    // before any of them is handed out, so rows written during a scan are seen exactly as the database would show them.
+    @Override
+    public void scanLoans(LoanQueryFilter filter, int pageSize, LoanRowHandler handler)
+            throws SQLException, ClassNotFoundException, IOException {
+        LoanDetails[] page = new LoanDetails[pageSize];
+        LoanDetails row = new LoanDetails(0, 0, 0, 0);
+        Map<Integer, LoanDetails> remaining = loans;
+        while (true) {
+            int count = 0;
+            for (LoanDetails loan : remaining.values()) {
+                if (filter.matches(loan)) {
+                    page[count++] = loan;
+                    if (count == pageSize) {
+                        break;
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                LoanDetails loan = page[i];
+                row.loanId = loan.loanId;
+                row.loanAmount = loan.loanAmount;
+                row.interestRate = loan.interestRate;
+                row.tenureYears = loan.tenureYears;
+                row.monthlyPayment = loan.monthlyPayment;
+                row.totalInterest = loan.totalInterest;
+                handler.accept(row);
+            }
+            if (count < pageSize) {
+                return;
+            }
+            remaining = loans.tailMap(page[count - 1].loanId, false);
+        }
+    }
+
+    @Override
+    public synchronized int deleteLoans(int[] loanIds) {
+        int deleted = 0;
+        for (int loanId : loanIds) {
+            if (loans.remove(loanId) != null) {
+                deleted++;
+            }
+            customers.remove(loanId);
+        }
+        return deleted;
+    }
+
+    @Override
+    public synchronized int insertUser(String name, String passwordHash) {
+        int id = nextUserId++;
+        users.put(id, new UserRecord(id, name, passwordHash));
+        userIdsByName.computeIfAbsent(name, key -> new ConcurrentSkipListSet<>()).add(id);
+        return id;
+    }
+
+    @Override
+    public List<UserRecord> findUsersByName(String name) {
+        Set<Integer> ids = userIdsByName.get(name);
+        if (ids == null) {
+            return new ArrayList<>(0);
+        }
+        List<UserRecord> matches = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            UserRecord user = users.get(id);
+            if (user != null) {
+                matches.add(user);
+            }
+        }
+        return matches;
+    }
+
+    @Override
+    public synchronized void updatePassword(int userId, String passwordHash) {
+        UserRecord user = users.get(userId);
+        if (user == null) {
+            return;
+        }
+        users.put(userId, new UserRecord(userId, user.name, passwordHash));
+    }
+
+    @Override
+    public synchronized void clear() {
+        loans.clear();
+        customers.clear();
+        users.clear();
+        userIdsByName.clear();
+    }
+
+    public int loanCount() {
+        return loans.size();
+    }
+
+    @Override
+    public void close() {
+    }
+}
+
+class WriteBehindWriter implements AutoCloseable {
+    static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LoanStore store;
+    private final BlockingQueue<Object> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread worker;
+    // Told about each loan once the store has committed it, on the worker thread.
+    private final Consumer<LoanDetails> onLoanWritten;
+    private final Map<Integer, LoanDetails> pendingLoans = new ConcurrentHashMap<>();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong rowsFailed = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile boolean closed;
+    private long lastFailureLogged = System.nanoTime() - LOG_INTERVAL_NANOS;
+    private long failuresSuppressed;
+
+    public WriteBehindWriter(LoanStore store, int queueCapacity, int batchSize, long flushIntervalMillis) {
+        this(store, queueCapacity, batchSize, flushIntervalMillis, loan -> { });
+    }
+
+    public WriteBehindWriter(LoanStore store, int queueCapacity, int batchSize, long flushIntervalMillis,
+            Consumer<LoanDetails> onLoanWritten) {
+        this.store = store;
+        this.onLoanWritten = onLoanWritten;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.worker = new Thread(this::run, "write-behind-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Blocks while the queue is full, which throttles producers to the rate the database can absorb.
+    public void enqueueLoan(LoanDetails loan) throws InterruptedException {
+        checkOpen();
+        pendingLoans.putIfAbsent(loan.loanId, loan);
+        queue.put(loan);
+    }
+
+    // Loans accepted but not yet committed, so readers can see their own writes.
+    public LoanDetails getPendingLoan(int loanId) {
+        return pendingLoans.get(loanId);
+    }
+
+    // Returns once everything enqueued before the call has been written (or has failed).
+    public void flush() throws InterruptedException {
+        checkOpen();
+        CountDownLatch done = new CountDownLatch(1);
+        queue.put(done);
+        done.await();
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Write-behind writer is closed");
+        }
+    }
+
+    private void run() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                Object first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed && queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize && !(batch.get(batch.size() - 1) instanceof CountDownLatch)) {
+                    Object next = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // write() already isolates failing rows; this only guards the worker thread against a bug there.
+                long rows = batch.stream().filter(item -> !(item instanceof CountDownLatch)).count();
+                rowsFailed.addAndGet(rows);
+                logFailure("Error in write-behind batch of " + rows + " rows", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Object> batch) {
+        List<LoanDetails> loans = new ArrayList<>();
+        List<CountDownLatch> markers = new ArrayList<>();
+        for (Object item : batch) {
+            if (item instanceof LoanDetails) {
+                loans.add((LoanDetails) item);
+            } else {
+                markers.add((CountDownLatch) item);
+            }
+        }
+        int rows = loans.size();
+        try {
+            if (rows > 0) {
+                List<LoanDetails> written;
+                try {
+                    writeBatch(loans);
+                    written = loans;
+                } catch (SQLException | ClassNotFoundException | RuntimeException e) {
+                    written = writeIndividually(loans);
+                }
+                for (LoanDetails loan : written) {
+                    try {
+                        onLoanWritten.accept(loan);
+                    } catch (RuntimeException e) {
+                        logFailure("Error after saving loan " + loan.loanId, e);
+                    }
+                }
+                batchesWritten.incrementAndGet();
+                lastBatchSize = rows;
+                maxBatchSize.accumulateAndGet(rows, Math::max);
+            }
+        } finally {
+            // Written or failed, these rows are no longer pending, and a flush() waiting on this batch must return.
+            for (LoanDetails loan : loans) {
+                pendingLoans.remove(loan.loanId, loan);
+            }
+            for (CountDownLatch marker : markers) {
+                marker.countDown();
+            }
+        }
+    }
+
+    private void writeBatch(List<LoanDetails> loans) throws SQLException, ClassNotFoundException {
+        long started = DatabaseManager.WRITE_BATCH_TIMER.start();
+        try {
+            store.insertBatch(loans, Collections.emptyList());
+            rowsWritten.addAndGet(loans.size());
+        } catch (SQLException | RuntimeException e) {
+            DatabaseManager.WRITE_BATCH_TIMER.error();
+            throw e;
+        } finally {
+            DatabaseManager.WRITE_BATCH_TIMER.stop(started);
+        }
+    }
+
+    // A failed batch is replayed row by row so one bad row (typically a duplicate loan_id, or a value the driver
+    // cannot bind) cannot drop its neighbours. Returns the loans that were stored.
+    private List<LoanDetails> writeIndividually(List<LoanDetails> loans) {
+        List<LoanDetails> written = new ArrayList<>(loans.size());
+        for (LoanDetails loan : loans) {
+            try {
+                store.insertBatch(Collections.singletonList(loan), Collections.emptyList());
+                rowsWritten.incrementAndGet();
+                written.add(loan);
+            } catch (SQLException | ClassNotFoundException | RuntimeException e) {
+                rowsFailed.incrementAndGet();
+                logFailure("Error saving loan " + loan.loanId, e);
+            }
+        }
+        return written;
+    }
+
+    // Failures go to stderr at most once per LOG_INTERVAL_NANOS; the rest are counted into the next line so a burst
+    // of rejected rows cannot flood the console. Only the worker thread logs, so no locking is needed.
+    private void logFailure(String message, Exception e) {
+        long now = System.nanoTime();
+        if (now - lastFailureLogged < LOG_INTERVAL_NANOS) {
+            failuresSuppressed++;
+            return;
+        }
+        System.err.println(message + ": " + e.getMessage()
+                + (failuresSuppressed > 0 ? " (" + failuresSuppressed + " more failures since the last message)" : ""));
+        failuresSuppressed = 0;
+        lastFailureLogged = now;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed.get();
+    }
+
+    public int getLastBatchSize() {
+        return lastBatchSize;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = batchesWritten.get();
+        return batches == 0 ? 0 : (double) (rowsWritten.get() + rowsFailed.get()) / batches;
+    }
+
+    // Stops accepting writes, then waits for everything already queued to be committed. The worker is not
+    // interrupted, since an interrupt mid-statement can abort the very JDBC call that is flushing the queue.
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
+
+class ReadThroughCache<V> {
+    interface Loader<V> {
+        V load(int key) throws SQLException, ClassNotFoundException;
+    }
+
+    private static final class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final int STAMP_STRIPES = 64;
+
+    private final long ttlNanos;
+    private final Map<Integer, Entry<V>> entries;
+    // Bumped under the entries lock by every write to a key in the stripe. A load only caches its result if the stamp
+    // it read before loading is unchanged, so an invalidate always wins over a load that was already in flight.
+    private final long[] stamps = new long[STAMP_STRIPES];
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    public ReadThroughCache(int maxSize, long ttlMillis) {
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<Integer, Entry<V>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Entry<V>> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // The loader runs outside the lock; a missing row (null) is not cached, so a later insert is seen at once.
+    public V get(int key, Loader<V> loader) throws SQLException, ClassNotFoundException {
+        long now = System.nanoTime();
+        long stamp;
+        synchronized (entries) {
+            stamp = stamps[stripe(key)];
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(key);
+                expirations.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        V value = loader.load(key);
+        if (value != null) {
+            synchronized (entries) {
+                if (stamps[stripe(key)] == stamp) {
+                    entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+                }
+            }
+        }
+        return value;
+    }
+
+    private static int stripe(int key) {
+        return (key ^ (key >>> 16)) & (STAMP_STRIPES - 1);
+    }
+
+    public void put(int key, V value) {
+        synchronized (entries) {
+            stamps[stripe(key)]++;
+            entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+        }
+    }
+
+    public void invalidate(int key) {
+        synchronized (entries) {
+            stamps[stripe(key)]++;
+            entries.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            for (int i = 0; i < STAMP_STRIPES; i++) {
+                stamps[i]++;
+            }
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+}
+
+class LoanQueryFilter {
+    double minRate = Double.NaN;
+    double maxRate = Double.NaN;
+    int minTenure = -1;
+    int maxTenure = -1;
+
+    public LoanQueryFilter rateBetween(double minRate, double maxRate) {
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        return this;
+    }
+
+    public LoanQueryFilter tenureBetween(int minTenure, int maxTenure) {
+        this.minTenure = minTenure;
+        this.maxTenure = maxTenure;
+        return this;
+    }
+
+    boolean hasRateRange() {
+        return !Double.isNaN(minRate);
+    }
+
+    boolean hasTenureRange() {
+        return minTenure >= 0;
+    }
+
+    public boolean matches(LoanDetails loan) {
+        return (!hasRateRange() || (loan.interestRate >= minRate && loan.interestRate <= maxRate))
+                && (!hasTenureRange() || (loan.tenureYears >= minTenure && loan.tenureYears <= maxTenure));
+    }
+}
+
+interface LoanRowHandler {
+    // The same LoanDetails instance is reused for every row; copy it if it must outlive the call. A handler may write to
+    // the store itself, as purging does, so it can fail the way the scan can.
+    void accept(LoanDetails loan) throws SQLException, ClassNotFoundException, IOException;
+}
+
+class LoanExporter implements LoanRowHandler {
+    enum Format { CSV, JSON }
+
+    static final int AMOUNT_SCALE = 2;
+    static final int RATE_SCALE = 4;
+
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final StringBuilder line = new StringBuilder(128);
+    private long rows;
+
+    public LoanExporter(WritableByteChannel channel, Format format) {
+        this.channel = channel;
+        this.format = format;
+    }
+
+    public void writeHeader() throws IOException {
+        if (format == Format.CSV) {
+            line.setLength(0);
+            line.append("loan_id,loan_amount,interest_rate,tenure_years,monthly_payment,total_interest\n");
+            put(line);
+        }
+    }
+
+    @Override
+    public void accept(LoanDetails loan) throws IOException {
+        line.setLength(0);
+        if (format == Format.CSV) {
+            line.append(loan.loanId).append(',');
+            appendDecimal(line, loan.loanAmount, AMOUNT_SCALE, false).append(',');
+            appendDecimal(line, loan.interestRate, RATE_SCALE, false).append(',').append(loan.tenureYears).append(',');
+            appendDecimal(line, loan.monthlyPayment, AMOUNT_SCALE, false).append(',');
+            appendDecimal(line, loan.totalInterest, AMOUNT_SCALE, false).append('\n');
+        } else {
+            appendJson(line, loan).append('\n');
+        }
+        put(line);
+        rows++;
+    }
+
+    static StringBuilder appendJson(StringBuilder json, LoanDetails loan) {
+        json.append("{\"loan_id\":").append(loan.loanId).append(",\"loan_amount\":");
+        appendDecimal(json, loan.loanAmount, AMOUNT_SCALE, true).append(",\"interest_rate\":");
+        appendDecimal(json, loan.interestRate, RATE_SCALE, true).append(",\"tenure_years\":").append(loan.tenureYears)
+                .append(",\"monthly_payment\":");
+        appendDecimal(json, loan.monthlyPayment, AMOUNT_SCALE, true).append(",\"total_interest\":");
+        return appendDecimal(json, loan.totalInterest, AMOUNT_SCALE, true).append('}');
+    }
+
+    // append(double) switches to scientific notation from 1e7 and writes NaN/Infinity, which is not JSON. Values are
+    // written plain at the scale of their database column; a non-finite value is null in JSON and empty in CSV.
+    static StringBuilder appendDecimal(StringBuilder out, double value, int scale, boolean json) {
+        if (!Double.isFinite(value)) {
+            return json ? out.append("null") : out;
+        }
+        return out.append(BigDecimal.valueOf(value).setScale(scale, RoundingMode.HALF_EVEN).toPlainString());
+    }
+
+    // Every character written is ASCII, so chars go straight into the buffer without a CharsetEncoder.
+    private void put(CharSequence text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public void flush() throws IOException {
+        drain();
+    }
+
+    public long getRows() {
+        return rows;
+    }
+}
+
+class LoanSnapshot implements AutoCloseable {
+    static final int MAGIC = 0x484C534E;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int ROW_BYTES = 4 * Double.BYTES + 2 * Integer.BYTES;
+    private static final int COUNT_OFFSET = 12;
+    private static final int CHECKSUM_OFFSET = 16;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Path path;
+    private FileChannel channel;
+    // grow replaces the buffer and the capacity that lays out its columns together, so they are published as one
+    // volatile reference and a reader always pairs a buffer with its own capacity.
+    private volatile Mapping mapping;
+    private volatile int count;
+    // Guarded by this, like channel.
+    private long checksum;
+
+    private static final class Mapping {
+        final MappedByteBuffer buffer;
+        final int capacity;
+
+        Mapping(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+            this.capacity = buffer.getInt(8);
+        }
+    }
+
+    private LoanSnapshot(Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.path = path;
+        this.channel = channel;
+        this.mapping = new Mapping(buffer);
+        this.count = buffer.getInt(COUNT_OFFSET);
+        this.checksum = buffer.getLong(CHECKSUM_OFFSET);
+    }
+
+    // Doubles first, then ints, so every double column starts 8-byte aligned.
+    private static long amountOffset(int capacity) {
+        return HEADER_BYTES;
+    }
+
+    private static long rateOffset(int capacity) {
+        return HEADER_BYTES + (long) capacity * Double.BYTES;
+    }
+
+    private static long emiOffset(int capacity) {
+        return HEADER_BYTES + 2L * capacity * Double.BYTES;
+    }
+
+    private static long interestOffset(int capacity) {
+        return HEADER_BYTES + 3L * capacity * Double.BYTES;
+    }
+
+    private static long loanIdOffset(int capacity) {
+        return HEADER_BYTES + 4L * capacity * Double.BYTES;
+    }
+
+    private static long tenureOffset(int capacity) {
+        return loanIdOffset(capacity) + (long) capacity * Integer.BYTES;
+    }
+
+    static long fileSize(int capacity) {
+        return HEADER_BYTES + (long) capacity * ROW_BYTES;
+    }
+
+    public static LoanSnapshot create(Path path, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(Math.max(capacity, 1)));
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, Math.max(capacity, 1));
+        buffer.putInt(COUNT_OFFSET, 0);
+        buffer.putLong(CHECKSUM_OFFSET, FNV_OFFSET);
+        return new LoanSnapshot(path, channel, buffer);
+    }
+
+    public static LoanSnapshot open(Path path, boolean writable) throws IOException {
+        FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("Not a loan snapshot: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a loan snapshot (or unsupported version): " + path);
+            }
+            if (channel.size() != fileSize(buffer.getInt(8))) {
+                throw new IOException("Loan snapshot is truncated: " + path);
+            }
+            LoanSnapshot snapshot = new LoanSnapshot(path, channel, buffer);
+            if (!snapshot.verify()) {
+                throw new IOException("Loan snapshot checksum mismatch: " + path);
+            }
+            return snapshot;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Streams the Loans table into a new snapshot without holding more than one page of rows in memory. Queued quotes
+    // are flushed first, so the snapshot holds every quote accepted before the call.
+    public static LoanSnapshot write(Path path, DatabaseManager db) throws IOException, SQLException, ClassNotFoundException {
+        DatabaseManager.flushQueuedWrites();
+        LoanSnapshot snapshot = create(path, 1024);
+        try {
+            db.streamLoans(new LoanQueryFilter(), DatabaseManager.EXPORT_PAGE_SIZE, snapshot::append);
+            snapshot.force();
+            return snapshot;
+        } catch (IOException | SQLException | ClassNotFoundException | RuntimeException e) {
+            snapshot.close();
+            throw e;
+        }
+    }
+
+    private static long mix(long hash, long value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    private static long rowChecksum(long hash, int loanId, double amount, double rate, int tenure, double emi, double interest) {
+        hash = mix(hash, loanId);
+        hash = mix(hash, Double.doubleToLongBits(amount));
+        hash = mix(hash, Double.doubleToLongBits(rate));
+        hash = mix(hash, tenure);
+        hash = mix(hash, Double.doubleToLongBits(emi));
+        return mix(hash, Double.doubleToLongBits(interest));
+    }
+
+    // The running checksum is kept in the header, so appending never rereads earlier rows.
+    public synchronized void append(LoanDetails loan) throws IOException {
+        if (count == mapping.capacity) {
+            grow(mapping.capacity * 2);
+        }
+        MappedByteBuffer b = mapping.buffer;
+        int capacity = mapping.capacity;
+        int i = count;
+        b.putDouble((int) (amountOffset(capacity) + (long) i * Double.BYTES), loan.loanAmount);
+        b.putDouble((int) (rateOffset(capacity) + (long) i * Double.BYTES), loan.interestRate);
+        b.putDouble((int) (emiOffset(capacity) + (long) i * Double.BYTES), loan.monthlyPayment);
+        b.putDouble((int) (interestOffset(capacity) + (long) i * Double.BYTES), loan.totalInterest);
+        b.putInt((int) (loanIdOffset(capacity) + (long) i * Integer.BYTES), loan.loanId);
+        b.putInt((int) (tenureOffset(capacity) + (long) i * Integer.BYTES), loan.tenureYears);
+        checksum = rowChecksum(checksum, loan.loanId, loan.loanAmount, loan.interestRate, loan.tenureYears,
+                loan.monthlyPayment, loan.totalInterest);
+        b.putLong(CHECKSUM_OFFSET, checksum);
+        count = i + 1;
+        b.putInt(COUNT_OFFSET, count);
+    }
+
+    // Columns are laid out by capacity, so growing rewrites them into a larger file that replaces the old one atomically.
+    private void grow(int newCapacity) throws IOException {
+        int capacity = mapping.capacity;
+        if (fileSize(newCapacity) > Integer.MAX_VALUE) {
+            throw new IOException("Loan snapshot cannot grow beyond " + capacity + " rows in a single mapping");
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".grow");
+        try (FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer grown = target.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(newCapacity));
+            MappedByteBuffer old = mapping.buffer;
+            grown.put(0, old, 0, HEADER_BYTES);
+            grown.putInt(8, newCapacity);
+            copyColumn(old, amountOffset(capacity), grown, amountOffset(newCapacity), count * Double.BYTES);
+            copyColumn(old, rateOffset(capacity), grown, rateOffset(newCapacity), count * Double.BYTES);
+            copyColumn(old, emiOffset(capacity), grown, emiOffset(newCapacity), count * Double.BYTES);
+            copyColumn(old, interestOffset(capacity), grown, interestOffset(newCapacity), count * Double.BYTES);
+            copyColumn(old, loanIdOffset(capacity), grown, loanIdOffset(newCapacity), count * Integer.BYTES);
+            copyColumn(old, tenureOffset(capacity), grown, tenureOffset(newCapacity), count * Integer.BYTES);
+            grown.force();
+        }
+        channel.close();
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        mapping = new Mapping(channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(newCapacity)));
+    }
+
+    private static void copyColumn(MappedByteBuffer from, long fromOffset, MappedByteBuffer to, long toOffset, int bytes) {
+        to.put((int) toOffset, from, (int) fromOffset, bytes);
+    }
+
+    public synchronized boolean verify() {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < count; i++) {
+            hash = rowChecksum(hash, loanId(i), loanAmount(i), interestRate(i), tenureYears(i), monthlyPayment(i), totalInterest(i));
+        }
+        return hash == checksum;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int loanId(int i) {
+        Mapping m = mapping;
+        return m.buffer.getInt((int) (loanIdOffset(m.capacity) + (long) i * Integer.BYTES));
+    }
+
+    public double loanAmount(int i) {
+        Mapping m = mapping;
+        return m.buffer.getDouble((int) (amountOffset(m.capacity) + (long) i * Double.BYTES));
+    }
+
+    public double interestRate(int i) {
+        Mapping m = mapping;
+        return m.buffer.getDouble((int) (rateOffset(m.capacity) + (long) i * Double.BYTES));
+    }
+
+    public int tenureYears(int i) {
+        Mapping m = mapping;
+        return m.buffer.getInt((int) (tenureOffset(m.capacity) + (long) i * Integer.BYTES));
+    }
+
+    public double monthlyPayment(int i) {
+        Mapping m = mapping;
+        return m.buffer.getDouble((int) (emiOffset(m.capacity) + (long) i * Double.BYTES));
+    }
+
+    public double totalInterest(int i) {
+        Mapping m = mapping;
+        return m.buffer.getDouble((int) (interestOffset(m.capacity) + (long) i * Double.BYTES));
+    }
+
+    public LoanDetails loan(int i) {
+        LoanDetails loan = new LoanDetails(loanId(i), loanAmount(i), interestRate(i), tenureYears(i));
+        loan.monthlyPayment = monthlyPayment(i);
+        loan.totalInterest = totalInterest(i);
+        return loan;
+    }
+
+    public void loadInto(LoanManagement loans) {
+        int rows = count;
+        for (int i = 0; i < rows; i++) {
+            loans.addLoan(loan(i));
+        }
+    }
+
+    public synchronized void force() {
+        MappedByteBuffer buffer = mapping.buffer;
+        if (!buffer.isReadOnly()) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+}
+
+// Bulk load of loan applications from CSV lines of amount,rate,tenure,name,email,phone. The file is read in fixed-size
+// chunks; a parsed chunk is quoted in parallel and handed to a single writer thread through a two-slot queue, so at
+// most three chunks are in memory whatever the file size.
+class LoanIngestor {
+    static final int CHUNK_ROWS = Integer.getInteger("homeloan.ingest.chunkRows", 16_384);
+    static final int QUEUE_DEPTH = 2;
+    static final Metrics.Timer CHUNK_TIMER = Metrics.timer("ingest.writeChunk");
+
+    static final class Chunk {
+        final double[] amounts = new double[CHUNK_ROWS];
+        final double[] rates = new double[CHUNK_ROWS];
+        final int[] tenures = new int[CHUNK_ROWS];
+        final String[] names = new String[CHUNK_ROWS];
+        final String[] emails = new String[CHUNK_ROWS];
+        final String[] phones = new String[CHUNK_ROWS];
+        final long[] lineNumbers = new long[CHUNK_ROWS];
+        final String[] lines = new String[CHUNK_ROWS];
+        int size;
+        BatchQuoteResult quotes;
+
+        boolean isFull() {
+            return size == CHUNK_ROWS;
+        }
+    }
+
+    private static final Chunk END = new Chunk();
+
+    private final LoanStore store;
+    private final LoanCalculator calculator;
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsAccepted = new LongAdder();
+    private final LongAdder rowsRejected = new LongAdder();
 
+    public LoanIngestor(LoanStore store, LoanCalculator calculator) {
+        this.store = store;
+        this.calculator = calculator;
+    }
 
+    // Returns null for a valid row, otherwise the reason it was rejected.
+    static String parseInto(Chunk chunk, String line) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 6) {
+            return "expected 6 fields, found " + fields.length;
+        }
+        int row = chunk.size;
+        try {
+            chunk.amounts[row] = Double.parseDouble(fields[0].trim());
+            chunk.rates[row] = Double.parseDouble(fields[1].trim());
+            chunk.tenures[row] = Integer.parseInt(fields[2].trim());
+            QuoteService.validate(chunk.amounts[row], chunk.rates[row], chunk.tenures[row]);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        String name = fields[3].trim();
+        String email = fields[4].trim();
+        String phone = fields[5].trim();
+        if (name.isEmpty() || name.length() > 50) {
+            return "name must be 1 to 50 characters";
+        }
+        if (email.isEmpty() || email.length() > 50) {
+            return "email must be 1 to 50 characters";
+        }
+        if (!DatabaseManager.isValidPhoneNumber(phone)) {
+            return "phone number is not valid";
+        }
+        chunk.names[row] = name;
+        chunk.emails[row] = email;
+        chunk.phones[row] = phone;
+        return null;
+    }
 
-interface LoanCalculator {
-    double calculateMonthlyPayment(double loanAmount, double interestRate, int tenureYears);
-    double calculateTotalInterest(double loanAmount, double interestRate, int tenureYears);
-    List<String> generateAmortizationSchedule(double loanAmount, double interestRate, int tenureYears);
+    public IngestReport ingest(Path csv, Path rejects) throws IOException, SQLException, InterruptedException {
+        long started = System.nanoTime();
+        BlockingQueue<Chunk> ready = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+        Exception[] writerFailure = new Exception[1];
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             BufferedWriter rejected = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8)) {
+            Thread writerThread = new Thread(() -> {
+                try {
+                    for (Chunk chunk = ready.take(); chunk != END; chunk = ready.take()) {
+                        writeChunk(chunk, rejected);
+                    }
+                } catch (Exception e) {
+                    writerFailure[0] = e;
+                    ready.clear();
+                }
+            }, "loan-ingest-writer");
+            writerThread.start();
+            try {
+                Chunk chunk = new Chunk();
+                long lineNumber = 0;
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (line.isBlank() || (lineNumber == 1 && line.toLowerCase(Locale.ROOT).startsWith("amount"))) {
+                        continue;
+                    }
+                    rowsRead.increment();
+                    String reason = parseInto(chunk, line);
+                    if (reason != null) {
+                        reject(rejected, lineNumber, reason, line);
+                        continue;
+                    }
+                    chunk.lineNumbers[chunk.size] = lineNumber;
+                    chunk.lines[chunk.size] = line;
+                    chunk.size++;
+                    if (chunk.isFull()) {
+                        if (!dispatch(chunk, ready, writerThread)) {
+                            break;
+                        }
+                        chunk = new Chunk();
+                    }
+                }
+                if (chunk.size > 0 && writerFailure[0] == null) {
+                    dispatch(chunk, ready, writerThread);
+                }
+            } finally {
+                if (writerThread.isAlive()) {
+                    ready.put(END);
+                }
+                writerThread.join();
+            }
+        }
+        if (writerFailure[0] instanceof SQLException) {
+            throw (SQLException) writerFailure[0];
+        }
+        if (writerFailure[0] instanceof IOException) {
+            throw (IOException) writerFailure[0];
+        }
+        if (writerFailure[0] != null) {
+            throw new SQLException("Ingestion writer failed", writerFailure[0]);
+        }
+        return new IngestReport(rowsRead.sum(), rowsAccepted.sum(), rowsRejected.sum(), System.nanoTime() - started);
+    }
+
+    // Returns false if the writer has died, in which case the rest of the file is not read.
+    private boolean dispatch(Chunk chunk, BlockingQueue<Chunk> ready, Thread writerThread) throws InterruptedException {
+        double[] amounts = chunk.isFull() ? chunk.amounts : Arrays.copyOf(chunk.amounts, chunk.size);
+        double[] rates = chunk.isFull() ? chunk.rates : Arrays.copyOf(chunk.rates, chunk.size);
+        int[] tenures = chunk.isFull() ? chunk.tenures : Arrays.copyOf(chunk.tenures, chunk.size);
+        chunk.quotes = calculator.calculateBatch(amounts, rates, tenures);
+        // Blocks while the writer is two chunks behind, which is what bounds memory.
+        while (!ready.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+            if (!writerThread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Customers go first so their generated keys can become the loan ids, then the loans; both in one transaction.
+    // A chunk that fails is rolled back and its rows are written to the rejects file.
+    private void writeChunk(Chunk chunk, BufferedWriter rejected) throws IOException, ClassNotFoundException {
+        long started = CHUNK_TIMER.start();
+        try {
+            List<BorrowerDetails> borrowers = new ArrayList<>(chunk.size);
+            List<LoanDetails> loans = new ArrayList<>(chunk.size);
+            for (int i = 0; i < chunk.size; i++) {
+                borrowers.add(new BorrowerDetails(0, chunk.names[i], chunk.emails[i], chunk.phones[i]));
+                LoanDetails loan = new LoanDetails(0, chunk.amounts[i], chunk.rates[i], chunk.tenures[i]);
+                loan.monthlyPayment = chunk.quotes.monthlyPayments[i];
+                loan.totalInterest = chunk.quotes.totalInterests[i];
+                loans.add(loan);
+            }
+            store.insertApplications(borrowers, loans);
+            for (LoanDetails loan : loans) {
+                DatabaseManager.invalidateLoan(loan.loanId);
+                DatabaseManager.invalidateCustomer(loan.loanId);
+            }
+            rowsAccepted.add(chunk.size);
+        } catch (SQLException e) {
+            CHUNK_TIMER.error();
+            for (int i = 0; i < chunk.size; i++) {
+                reject(rejected, chunk.lineNumbers[i], "database: " + e.getMessage(), chunk.lines[i]);
+            }
+        } finally {
+            CHUNK_TIMER.stop(started);
+        }
+    }
+
+    // Rejects are written as line number, reason and the original line, tab separated so the line stays intact.
+    private synchronized void reject(BufferedWriter rejected, long lineNumber, String reason, String line) throws IOException {
+        rejected.write(lineNumber + "\t" + String.valueOf(reason).replace('\t', ' ').replace('\n', ' ') + "\t" + line);
+        rejected.newLine();
+        rowsRejected.increment();
+    }
+
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    public long getRowsAccepted() {
+        return rowsAccepted.sum();
+    }
+
+    public long getRowsRejected() {
+        return rowsRejected.sum();
+    }
 }
 
-class LoanDetails {
-    int loanId;
-    double loanAmount;
-    double interestRate;
-    int tenureYears;
-    double monthlyPayment;
-    double totalInterest;
+class IngestReport {
+    final long rowsRead;
+    final long rowsAccepted;
+    final long rowsRejected;
+    final long elapsedNanos;
 
-    public LoanDetails(int loanId, double loanAmount, double interestRate, int tenureYears) {
-        this.loanId = loanId;
-        this.loanAmount = loanAmount;
-        this.interestRate = interestRate;
-        this.tenureYears = tenureYears;
+    public IngestReport(long rowsRead, long rowsAccepted, long rowsRejected, long elapsedNanos) {
+        this.rowsRead = rowsRead;
+        this.rowsAccepted = rowsAccepted;
+        this.rowsRejected = rowsRejected;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public double rowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Read %d rows in %.2f s (%.0f rows/s): %d accepted, %d rejected",
+                rowsRead, elapsedNanos / 1e9, rowsPerSecond(), rowsAccepted, rowsRejected);
     }
 }
 
-class BorrowerDetails {
-    int borrowerId;
-    String borrowerName;
-    String email;
-    String phoneNumber;
+// Salted PBKDF2 password hashes stored as pbkdf2$iterations$salt$hash (Base64). Rows written before hashing was
+// introduced still hold the plaintext password; they verify by plain comparison and are rehashed on the next login.
+class PasswordHasher {
+    static final String PREFIX = "pbkdf2$";
+    static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    static final int ITERATIONS = Integer.getInteger("homeloan.auth.iterations", 120_000);
+    static final int SALT_BYTES = 16;
+    static final int HASH_BITS = 256;
+    // Large enough for the encoded form with a seven-digit iteration count.
+    static final int STORED_LENGTH = 128;
 
-    public BorrowerDetails(int borrowerId, String borrowerName, String email, String phoneNumber) {
-        this.borrowerId = borrowerId;
-        this.borrowerName = borrowerName;
-        this.email = email;
-        this.phoneNumber = phoneNumber;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return PREFIX + ITERATIONS + "$" + base64.encodeToString(salt) + "$"
+                + base64.encodeToString(derive(password, salt, ITERATIONS));
+    }
+
+    static boolean verify(String password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!stored.startsWith(PREFIX)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        Base64.Decoder base64 = Base64.getDecoder();
+        byte[] expected = base64.decode(parts[3]);
+        return MessageDigest.isEqual(expected, derive(password, base64.decode(parts[2]), Integer.parseInt(parts[1])));
+    }
+
+    static boolean needsRehash(String stored) {
+        return stored == null || !stored.startsWith(PREFIX + ITERATIONS + "$");
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
     }
 }
 
-class Node {
-    LoanDetails data;
-    Node next;
+// Logged-in users keyed by an opaque token. The password hash is checked once in login; later requests only look the
+// token up, so the hashing cost never lands on the quote path.
+class SessionManager {
+    enum Role { ADMIN, USER }
+
+    interface Authenticator {
+        int authenticate(String name, String password) throws SQLException, ClassNotFoundException;
+    }
+
+    static final class Session {
+        final String token;
+        final int userId;
+        final String name;
+        final Role role;
+        final long expiresAtNanos;
+
+        Session(String token, int userId, String name, Role role, long expiresAtNanos) {
+            this.token = token;
+            this.userId = userId;
+            this.name = name;
+            this.role = role;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    static final long DEFAULT_TTL_MS = Long.getLong("homeloan.session.ttlMs", 30 * 60_000);
+    // The first row in User is the administrator, as it always has been.
+    static final int ADMIN_USER_ID = 1;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final Authenticator authenticator;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    public SessionManager(Authenticator authenticator, long ttlMillis) {
+        this.authenticator = authenticator;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    // Returns null when the credentials do not match a user.
+    public Session login(String name, String password) throws SQLException, ClassNotFoundException {
+        purgeExpired();
+        int userId = authenticator.authenticate(name, password);
+        if (userId == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[24];
+        RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Session session = new Session(token, userId, name, userId == ADMIN_USER_ID ? Role.ADMIN : Role.USER,
+                System.nanoTime() + ttlNanos);
+        sessions.put(token, session);
+        return session;
+    }
+
+    // Returns null for an unknown or expired token.
+    public Session get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session != null && session.isExpired(System.nanoTime())) {
+            sessions.remove(token, session);
+            return null;
+        }
+        return session;
+    }
+
+    public void logout(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    public void purgeExpired() {
+        long now = System.nanoTime();
+        sessions.values().removeIf(session -> session.isExpired(now));
+    }
 
-    public Node(LoanDetails data) {
-        this.data = data;
-        this.next = null;
+    public int size() {
+        return sessions.size();
     }
 }
 
-class LoanManagement {
-    private Node head;
+class DatabaseManager {
+    Scanner sc=new Scanner(System.in);
+    static final LoanManagement loanManagement = new LoanManagement();
+    static final LoanCalculator calculator = createCalculator();
+    static final DatabaseManager dbManager = new DatabaseManager();
+    static final SessionManager sessions = new SessionManager(dbManager::checkLoanId, SessionManager.DEFAULT_TTL_MS);
+    private final AmortizationSchedule schedule = new AmortizationSchedule();
+    // -Dhomeloan.calculator=fixed switches quotes to paisa-exact fixed-point arithmetic; -Dhomeloan.product selects
+    // a product other than the standard monthly annuity (see LoanProducts.parse) for every quote. Only the standard
+    // product has a fixed-point implementation, so asking for both is refused rather than silently dropping one.
+    static LoanCalculator createCalculator() {
+        return createCalculator(System.getProperty("homeloan.product", "standard"), System.getProperty("homeloan.calculator", ""));
+    }
 
-    public void addLoan(LoanDetails loan) {
-        Node newNode = new Node(loan);
-        if (head == null) {
-            head = newNode;
-        } else {
-            Node current = head;
-            while (current.next != null) {
-                current = current.next;
+    static LoanCalculator createCalculator(String product, String calculator) {
+        boolean fixedPoint = calculator.equalsIgnoreCase("fixed");
+        if (!product.equals("standard")) {
+            if (fixedPoint) {
+                throw new IllegalArgumentException("homeloan.calculator=fixed only supports the standard product, not " + product);
             }
-            current.next = newNode;
+            return new ProductLoanCalculator(LoanProducts.parse(product));
         }
+        return fixedPoint ? new FixedPointLoanCalculator() : new HomeLoanCalculator();
     }
 
-    public List<LoanDetails> getAllLoans() {
-        List<LoanDetails> loans = new ArrayList<>();
-        Node current = head;
-        while (current != null) {
-            loans.add(current.data);
-            current = current.next;
+    static final String DB_DRIVER = System.getProperty("homeloan.db.driver", "com.mysql.cj.jdbc.Driver");
+    static final String DB_URL = System.getProperty("homeloan.db.url", "jdbc:mysql://localhost:3306/homeloandb");
+    static final String DB_USER = System.getProperty("homeloan.db.user", "root");
+    static final String DB_PASSWORD = System.getProperty("homeloan.db.password", "");
+
+    static final int POOL_SIZE = Integer.getInteger("homeloan.db.pool.size", 10);
+    static final long POOL_IDLE_TIMEOUT_MS = Long.getLong("homeloan.db.pool.idleTimeoutMs", 300_000);
+    static final long POOL_VALIDATE_AFTER_MS = Long.getLong("homeloan.db.pool.validateAfterMs", 30_000);
+    static final int POOL_VALIDATION_TIMEOUT_S = Integer.getInteger("homeloan.db.pool.validationTimeoutS", 2);
+    static final long POOL_BORROW_TIMEOUT_MS = Long.getLong("homeloan.db.pool.borrowTimeoutMs", 30_000);
+    private static volatile ConnectionPool pool;
+
+    static ConnectionPool pool() throws ClassNotFoundException {
+        ConnectionPool p = pool;
+        if (p == null) {
+            synchronized (DatabaseManager.class) {
+                p = pool;
+                if (p == null) {
+                    Class.forName(DB_DRIVER);
+                    p = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD, POOL_SIZE, POOL_IDLE_TIMEOUT_MS,
+                            POOL_VALIDATE_AFTER_MS, POOL_VALIDATION_TIMEOUT_S, POOL_BORROW_TIMEOUT_MS);
+                    Runtime.getRuntime().addShutdownHook(new Thread(DatabaseManager::shutdown, "database-shutdown"));
+                    pool = p;
+                }
+            }
         }
-        return loans;
+        return p;
     }
 
-    public LoanDetails getLoanById(int loanId) {
-        Node current = head;
-        while (current != null) {
-            if (current.data.loanId == loanId) {
-                return current.data;
+    // -Dhomeloan.store=memory runs on the embedded in-process store instead of the JDBC database.
+    static final String STORE_KIND = System.getProperty("homeloan.store", "jdbc");
+    private static volatile LoanStore store;
+
+    static LoanStore store() {
+        LoanStore s = store;
+        if (s == null) {
+            synchronized (DatabaseManager.class) {
+                s = store;
+                if (s == null) {
+                    s = createStore(STORE_KIND);
+                    store = s;
+                }
             }
-            current = current.next;
         }
-        return null;
+        return s;
     }
-}
 
-class HomeLoanCalculator implements LoanCalculator {
-    @Override
-    public double calculateMonthlyPayment(double loanAmount, double interestRate, int tenureYears) {
-        double monthlyRate = interestRate / 12 / 100;
-        int tenureMonths = tenureYears * 12;
-        return (loanAmount * monthlyRate) / (1 - Math.pow(1 + monthlyRate, -tenureMonths));
+    static LoanStore createStore(String kind) {
+        switch (kind) {
+            case "memory":
+                return new InMemoryLoanStore();
+            case "jdbc":
+                return new JdbcLoanStore(() -> dbManager.connect());
+            default:
+                throw new IllegalArgumentException("Unknown homeloan.store: " + kind + " (expected jdbc or memory)");
+        }
     }
 
-    @Override
-    public double calculateTotalInterest(double loanAmount, double interestRate, int tenureYears) {
-        double monthlyPayment = calculateMonthlyPayment(loanAmount, interestRate, tenureYears);
-        return (monthlyPayment * tenureYears * 12) - loanAmount;
+    static final int WRITE_QUEUE_CAPACITY = Integer.getInteger("homeloan.writeBehind.queueCapacity", 10_000);
+    static final int WRITE_BATCH_SIZE = Integer.getInteger("homeloan.writeBehind.batchSize", 500);
+    static final long WRITE_FLUSH_INTERVAL_MS = Long.getLong("homeloan.writeBehind.flushIntervalMs", 200);
+    private static volatile WriteBehindWriter writer;
+
+    static WriteBehindWriter writer() throws ClassNotFoundException {
+        WriteBehindWriter w = writer;
+        if (w == null) {
+            LoanStore s = store();
+            synchronized (DatabaseManager.class) {
+                w = writer;
+                if (w == null) {
+                    w = new WriteBehindWriter(s, WRITE_QUEUE_CAPACITY, WRITE_BATCH_SIZE, WRITE_FLUSH_INTERVAL_MS,
+                            DatabaseManager::appendToSnapshot);
+                    writer = w;
+                }
+            }
+        }
+        return w;
     }
 
-    @Override
-    public List<String> generateAmortizationSchedule(double loanAmount, double interestRate, int tenureYears) {
-        List<String> schedule = new ArrayList<>();
-        double monthlyPayment = calculateMonthlyPayment(loanAmount, interestRate, tenureYears);
-        double balance = loanAmount;
-        double monthlyRate = interestRate / 12 / 100;
+    // Queued writes are flushed before the pool goes away, and before the snapshot they are appended to is closed.
+    static void shutdown() {
+        WriteBehindWriter w = writer;
+        if (w != null) {
+            w.close();
+        }
+        LoanSnapshot attached = snapshot;
+        if (attached != null) {
+            try {
+                attached.close();
+            } catch (IOException e) {
+                System.err.println("Error closing snapshot: " + e.getMessage());
+            }
+        }
+        LoanStore s = store;
+        if (s != null) {
+            s.close();
+        }
+        ConnectionPool p = pool;
+        if (p != null) {
+            p.close();
+        }
+    }
 
-        for (int i = 1; i <= tenureYears * 12; i++) {
-            double interest = balance * monthlyRate;
-            double principal = monthlyPayment - interest;
-            balance -= principal;
-            schedule.add(String.format("Month %d: Principal: %.2f, Interest: %.2f, Balance: %.2f", i, principal, interest, balance));
+    // -Dhomeloan.warmup=false disables the background warm-up; homeloan.db.pool.warm is how many connections it opens.
+    static final boolean WARM_UP = Boolean.parseBoolean(System.getProperty("homeloan.warmup", "true"));
+    static final int WARM_CONNECTIONS = Integer.getInteger("homeloan.db.pool.warm", Math.min(2, POOL_SIZE));
+    static final int WARM_PASSES = 20;
+
+    // Loads the driver, opens pooled connections and primes the calculator on a daemon thread, overlapping them with
+    // the schema check and the first prompt. A failure here only costs the warm-up; the real call will report it.
+    static Thread startWarmUp() {
+        Thread thread = new Thread(() -> {
+            try {
+                warmUp();
+            } catch (SQLException | ClassNotFoundException e) {
+                System.err.println("Warm-up failed: " + e.getMessage());
+            }
+        }, "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    static void warmUp() throws SQLException, ClassNotFoundException {
+        if (STORE_KIND.equals("jdbc")) {
+            pool().prewarm(WARM_CONNECTIONS);
         }
+        warmCalculator(calculator);
+    }
 
-        return schedule;
+    // Quotes the common rate and tenure grid often enough for the annuity factors to be cached and the quote and
+    // schedule paths to be JIT-compiled before the first real request.
+    static double warmCalculator(LoanCalculator calc) {
+        AmortizationSchedule scratch = new AmortizationSchedule();
+        double sink = 0;
+        for (int pass = 0; pass < WARM_PASSES; pass++) {
+            for (int step = 0; step <= 24; step++) {
+                double rate = 6 + step * 0.25;
+                for (int tenure = 5; tenure <= 30; tenure += 5) {
+                    sink += calc.calculateMonthlyPayment(2_500_000, rate, tenure)
+                            + calc.calculateTotalInterest(2_500_000, rate, tenure);
+                }
+            }
+            sink += calc.fillAmortizationSchedule(2_500_000, 8.5, 20, scratch).balance[0];
+        }
+        return sink;
     }
-}
 
-class DatabaseManager {
-    Scanner sc=new Scanner(System.in);
-    static LoanManagement loanManagement = new LoanManagement();
-    static HomeLoanCalculator calculator = new HomeLoanCalculator();
-    static DatabaseManager dbManager = new DatabaseManager();
-    private Connection connect() throws SQLException, ClassNotFoundException {
-        String driver="com.mysql.cj.jdbc.Driver";
-        Class.forName(driver);
-        String url = "jdbc:mysql://localhost:3306/homeloandb";
-        String dbuser="root";
-        String dbpass="";
-        return DriverManager.getConnection(url,dbuser,dbpass);
+    // Checkpoint/restore hooks (see CheckpointSupport): open sockets cannot be carried into a restored process, so
+    // queued writes are flushed and idle connections closed first, and the pool is warmed again after the restore.
+    static void beforeCheckpoint() throws InterruptedException {
+        WriteBehindWriter w = writer;
+        if (w != null) {
+            w.flush();
+        }
+        ConnectionPool p = pool;
+        if (p != null) {
+            p.closeIdle();
+        }
     }
 
-    public void createTables() throws SQLException, ClassNotFoundException {
-        String createLoansTable = "CREATE TABLE IF NOT EXISTS Loans (" +
-                "loan_id INTEGER  PRIMARY KEY ," +
-                "loan_amount DECIMAL," +
-                "interest_rate DECIMAL," +
-                "tenure_years INTEGER," +
-                "monthly_payment DECIMAL," +
-                "total_interest DECIMAL)";
-        String createCustomerTable = "CREATE TABLE IF NOT EXISTS Customer (" +
-                "customer_id INTEGER AUTO_INCREMENT PRIMARY KEY," +
-                "customer_name VARCHAR(50)," +
-                "email VARCHAR(50)," +
-                "phone_number VARCHAR(50))";
-
-        String createadminTable="CREATE TABLE IF NOT EXISTS User ("+        
-        "id INT  AUTO_INCREMENT PRIMARY KEY,"   +    
-        "name VARCHAR(50) NOT NULL,"+
-               "password VARCHAR(4) NOT NULL UNIQUE)";      
-          
-                      
-
-        try (Connection conn = connect();
-             Statement stmt = conn.createStatement()) {
-            stmt.execute(createLoansTable);
-            stmt.execute(createCustomerTable);
-            stmt.execute(createadminTable);
+    static void afterRestore() {
+        if (WARM_UP) {
+            startWarmUp();
+        }
+    }
+
+    static final Metrics.Timer CONNECT_TIMER = Metrics.timer("jdbc.connect");
+    static final Metrics.Timer CHECK_LOAN_ID_TIMER = Metrics.timer("sql.checkLoanId");
+    static final Metrics.Timer INSERT_LOAN_TIMER = Metrics.timer("sql.insertLoan");
+    static final Metrics.Timer INSERT_BORROWER_TIMER = Metrics.timer("sql.insertBorrower");
+    static final Metrics.Timer LOGIN_TIMER = Metrics.timer("sql.login");
+    static final Metrics.Timer REMOVE_USER_TIMER = Metrics.timer("sql.removeUser");
+    static final Metrics.Timer PURGE_CHUNK_TIMER = Metrics.timer("sql.purgeChunk");
+    static final Metrics.Timer WRITE_BATCH_TIMER = Metrics.timer("sql.writeBehindBatch");
+
+    Connection connect() throws SQLException, ClassNotFoundException {
+        long started = CONNECT_TIMER.start();
+        try {
+            return pool().getConnection();
+        } catch (SQLException e) {
+            CONNECT_TIMER.error();
+            throw e;
+        } finally {
+            CONNECT_TIMER.stop(started);
         }
     }
+
+    public void createTables() throws SQLException, ClassNotFoundException {
+        store().createSchema();
+    }
+
+    // Verifies the password against the stored hash and returns the user id, or 0. This runs the full PBKDF2 cost, so
+    // callers go through SessionManager.login rather than calling it per request. Plaintext rows are rehashed here.
     public int checkLoanId(String name,String pass) throws SQLException, ClassNotFoundException
     {
-        String sql="Select*from User where name=? and password=?";
-        int loanId=0;
-        try(Connection conn=connect();
-        PreparedStatement pst=conn.prepareStatement(sql))
-        {
-            pst.setString(1, name);
-            pst.setString(2, pass);
-            ResultSet rs=pst.executeQuery();
-            if (rs.next()) {
-                loanId=rs.getInt(1);
-            }
-        }   
-        return loanId;
-    }
-    public int checkBorrowerId() throws SQLException, ClassNotFoundException
-    {
-        int borrowerId =0;
-        String sqll="Select * from Customer";
-        try(Connection conn=connect();
-        PreparedStatement pst=conn.prepareStatement(sqll))
-        {
-            ResultSet rs=pst.executeQuery();
-            while (rs.next()) {
-                borrowerId=rs.getInt("customer_id");
+        long started = CHECK_LOAN_ID_TIMER.start();
+        try {
+            LoanStore s = store();
+            for (LoanStore.UserRecord user : s.findUsersByName(name)) {
+                if (PasswordHasher.verify(pass, user.password)) {
+                    if (PasswordHasher.needsRehash(user.password)) {
+                        s.updatePassword(user.id, PasswordHasher.hash(pass));
+                    }
+                    return user.id;
+                }
+            }
+            return 0;
+        } catch (SQLException e) {
+            CHECK_LOAN_ID_TIMER.error();
+            throw e;
+        } finally {
+            CHECK_LOAN_ID_TIMER.stop(started);
+        }
+    }
+
+    static final int CACHE_SIZE = Integer.getInteger("homeloan.cache.size", 10_000);
+    static final long CACHE_TTL_MS = Long.getLong("homeloan.cache.ttlMs", 60_000);
+    static final ReadThroughCache<LoanDetails> loanCache = new ReadThroughCache<>(CACHE_SIZE, CACHE_TTL_MS);
+    static final ReadThroughCache<BorrowerDetails> customerCache = new ReadThroughCache<>(CACHE_SIZE, CACHE_TTL_MS);
+
+    static {
+        Metrics.gauge("pool.active", () -> pool == null ? 0 : pool.getActiveCount());
+        Metrics.gauge("pool.idle", () -> pool == null ? 0 : pool.getIdleCount());
+        Metrics.gauge("pool.created", () -> pool == null ? 0 : pool.getCreatedCount());
+        Metrics.gauge("writeBehind.queueDepth", () -> writer == null ? 0 : writer.getQueueDepth());
+        Metrics.gauge("writeBehind.lastBatchSize", () -> writer == null ? 0 : writer.getLastBatchSize());
+        Metrics.gauge("writeBehind.averageBatchSize", () -> writer == null ? 0 : writer.getAverageBatchSize());
+        Metrics.gauge("writeBehind.rowsFailed", () -> writer == null ? 0 : writer.getRowsFailed());
+        Metrics.gauge("cache.loan.hitRate", loanCache::getHitRate);
+        Metrics.gauge("cache.customer.hitRate", customerCache::getHitRate);
+        Metrics.gauge("auth.sessions", sessions::size);
+        if (calculator instanceof HomeLoanCalculator) {
+            AnnuityFactorCache factors = ((HomeLoanCalculator) calculator).getFactorCache();
+            Metrics.gauge("cache.annuityFactor.hits", factors::getHits);
+            Metrics.gauge("cache.annuityFactor.misses", factors::getMisses);
+        }
+    }
+
+    private static volatile LoanSnapshot snapshot;
+
+    static void attachSnapshot(LoanSnapshot loanSnapshot) {
+        snapshot = loanSnapshot;
+    }
+
+    // Appends a quote to the open loan snapshot, if the application was started with one. The write-behind writer
+    // calls this once the store has committed the row, so a quote the store rejects (a repeat loan_id) never reaches
+    // the snapshot.
+    static void appendToSnapshot(LoanDetails loan) {
+        LoanSnapshot s = snapshot;
+        if (s != null) {
+            try {
+                s.append(loan);
+            } catch (IOException e) {
+                System.err.println("Error appending loan " + loan.loanId + " to snapshot: " + e.getMessage());
             }
         }
-        return borrowerId;
+    }
+
+    static void invalidateLoan(int loanId) {
+        loanCache.invalidate(loanId);
+    }
+
+    static void invalidateCustomer(int customerId) {
+        customerCache.invalidate(customerId);
     }
 
     public void insertLoan(int loan_id,double loanAmount,double interestRate,int tenureYears,double monthlyPayment,double totalInterest) throws SQLException, ClassNotFoundException {
-        String insertLoan = "INSERT INTO Loans  VALUES (?,?, ?, ?, ?, ?)";
-
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(insertLoan)) {
-                pstmt.setInt(1, loan_id);
-            pstmt.setDouble(2, loanAmount);
-            pstmt.setDouble(3, interestRate);
-            pstmt.setInt(4, tenureYears);
-            pstmt.setDouble(5, monthlyPayment);
-            pstmt.setDouble(6, totalInterest);
-            pstmt.executeUpdate();
+        long started = INSERT_LOAN_TIMER.start();
+        try {
+            LoanDetails loan = new LoanDetails(loan_id, loanAmount, interestRate, tenureYears);
+            loan.monthlyPayment = monthlyPayment;
+            loan.totalInterest = totalInterest;
+            try {
+                store().insertBatch(Collections.singletonList(loan), Collections.emptyList());
+            } finally {
+                invalidateLoan(loan_id);
+            }
+        } catch (SQLException e) {
+            INSERT_LOAN_TIMER.error();
+            throw e;
+        } finally {
+            INSERT_LOAN_TIMER.stop(started);
         }
     }
 
-    public void insertBorrower(String borrowerName,String email,String phoneNumber) throws SQLException, ClassNotFoundException {
-        String insertCustomer = "INSERT INTO Customer (customer_name, email, phone_number) VALUES ( ?, ?, ?)";
+    // Hands the row to the background writer; the caller does not wait for the commit.
+    public void enqueueLoan(LoanDetails loan) throws SQLException, ClassNotFoundException {
+        try {
+            writer().enqueueLoan(loan);
+            invalidateLoan(loan.loanId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while queueing loan " + loan.loanId, e);
+        }
+    }
 
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(insertCustomer)) {
-            pstmt.setString(1, borrowerName);
-            pstmt.setString(2,email);
-            pstmt.setString(3, phoneNumber);
-            pstmt.executeUpdate();
+    // Returns the customer_id assigned by the database, or 0 if the driver reported no key.
+    public int insertBorrower(String borrowerName,String email,String phoneNumber) throws SQLException, ClassNotFoundException {
+        long started = INSERT_BORROWER_TIMER.start();
+        try {
+            BorrowerDetails borrower = new BorrowerDetails(0, borrowerName, email, phoneNumber);
+            if (store().insertBorrower(borrower) != 0) {
+                customerCache.put(borrower.borrowerId, borrower);
+            }
+            return borrower.borrowerId;
+        } catch (SQLException e) {
+            INSERT_BORROWER_TIMER.error();
+            throw e;
+        } finally {
+            INSERT_BORROWER_TIMER.stop(started);
         }
     }
     public LoanDetails getLoanById(int loanId) throws SQLException, ClassNotFoundException {
-        String query = "SELECT * FROM Loans WHERE loan_id = ?";
-        try (Connection conn = connect();
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            pstmt.setInt(1, loanId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                LoanDetails loan = new LoanDetails(
-                        rs.getInt("loan_id"),
-                        rs.getDouble("loan_amount"),
-                        rs.getDouble("interest_rate"),
-                        rs.getInt("tenure_years")
-                );
-                loan.monthlyPayment = rs.getDouble("monthly_payment");
-                loan.totalInterest = rs.getDouble("total_interest");
-                return loan;
-            }
+        WriteBehindWriter w = writer;
+        LoanDetails pending = w == null ? null : w.getPendingLoan(loanId);
+        if (pending != null) {
+            return pending;
         }
-        return null;
+        return loanCache.get(loanId, this::loadLoan);
+    }
+
+    private LoanDetails loadLoan(int loanId) throws SQLException, ClassNotFoundException {
+        return store().findLoan(loanId);
+    }
+
+    public BorrowerDetails getCustomerById(int customerId) throws SQLException, ClassNotFoundException {
+        return customerCache.get(customerId, this::loadCustomer);
+    }
+
+    private BorrowerDetails loadCustomer(int customerId) throws SQLException, ClassNotFoundException {
+        return store().findBorrower(customerId);
     }
 
     public void registerAdmin() throws ClassNotFoundException, SQLException
     {
         //changes made
-        String sql="INSERT INTO user(name,password) VALUES(?,?)";
-        try(Connection conn=connect())
-             {
                System.out.println("---Enter Admin Details---");
                         System.out.println("Enter Admin Name");
                         String name=sc.nextLine();
                         
                         System.out.println("Enter Admin Password (4 Digits Only)");
                         String pass=sc.nextLine();
-                        PreparedStatement pst1=conn.prepareStatement(sql);
-                        pst1.setString(1, name);
-                        pst1.setString(2, pass);
-                        // pst1.setInt(3, 1);v changes madfe
-                        int r=pst1.executeUpdate();
+                        int r=store().insertUser(name, PasswordHasher.hash(pass));
                         if (r>0) {
                             System.out.println("---Registration Completed---");
-                            mainInterface();
                         }
-                    }
+    }
+
+    // Digits only; shared by registration and bulk ingestion.
+    static boolean isValidPhoneNumber(String phoneNumber) {
+        for (int i = 0; i < phoneNumber.length(); i++) {
+            char ch = phoneNumber.charAt(i);
+            if (ch < '0' || ch > '9') {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void registerUser() throws ClassNotFoundException, SQLException
     {
-        String sql="INSERT INTO user(name,password) VALUES(?,?)";
-        try(Connection conn=connect();
-             PreparedStatement pst1=conn.prepareStatement(sql))
-             {
                System.out.println("---Enter User Details---");
                         System.out.println("Enter User Name");
                         String name=sc.next();
@@ -280,28 +4476,30 @@ class DatabaseManager {
                         String email = sc.next();
                         System.out.print("Enter Phone Number: ");
                         String phoneNumber = sc.next();
-                        for (int i = 0; i < phoneNumber.length(); i++) {
-                            char ch = phoneNumber.charAt(i);
-                            if (ch < '0' || ch > '9') {
-                                 System.out.println("You phone number is not Valid !!");
-                                 return;
-                            }
-                        }
-                        try {
-                            dbManager.insertBorrower(name,email,phoneNumber);
-                        } catch (SQLException e) {
-                            e.printStackTrace();
+                        if (!isValidPhoneNumber(phoneNumber)) {
+                             System.out.println("You phone number is not Valid !!");
+                             return;
                         }
-                        int borrowerId = dbManager.checkBorrowerId();
-                        BorrowerDetails borrower = new BorrowerDetails(borrowerId, name, email, phoneNumber);
-                        pst1.setString(1, name);
-                        pst1.setString(2, pass);
-                        int r=pst1.executeUpdate();
-                        if (r>0) {
+                        if (registerUser(name, pass, email, phoneNumber) > 0) {
                             System.out.println("---Registration Completed---");
-                            mainInterface();
                         }
-                    }
+    }
+
+    // Returns the new user id, or 0 if registration failed. The customer row goes in first; if it is not stored,
+    // the login is not created either, so there is never a user without customer details.
+    int registerUser(String name, String pass, String email, String phoneNumber) throws ClassNotFoundException, SQLException {
+        int borrowerId;
+        try {
+            borrowerId = insertBorrower(name, email, phoneNumber);
+        } catch (SQLException e) {
+            System.err.println("Could not save customer details for " + name + ": " + e.getMessage());
+            return 0;
+        }
+        if (borrowerId == 0) {
+            System.err.println("Could not save customer details for " + name + ": no customer id was assigned");
+            return 0;
+        }
+        return store().insertUser(name, PasswordHasher.hash(pass));
     }
 
     void login() throws ClassNotFoundException {
@@ -311,21 +4509,30 @@ class DatabaseManager {
         String username = sc.next();
         System.out.print("Enter password: ");
         String password = sc.next();
-        String query = "SELECT * FROM user WHERE name = ? AND password = ?";
-
-        try(Connection conn=connect();
-        PreparedStatement preparedStatement = conn.prepareStatement(query);) {
-            preparedStatement.setString(1, username);
-            preparedStatement.setString(2, password);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()) {
-                int check=resultSet.getInt(1);
-                if (check==1) {
-                    runAdminInterface();
-                }
-                else 
-                {
-                    runUserInterface(username,password);
+
+        try {
+            // The connection used to authenticate is returned to the pool before the menus run.
+            long started = LOGIN_TIMER.start();
+            SessionManager.Session session;
+            try {
+                session = sessions.login(username, password);
+            } catch (SQLException e) {
+                LOGIN_TIMER.error();
+                throw e;
+            } finally {
+                LOGIN_TIMER.stop(started);
+            }
+            if (session != null) {
+                try {
+                    if (session.role == SessionManager.Role.ADMIN) {
+                        runAdminInterface();
+                    }
+                    else
+                    {
+                        runUserInterface(session);
+                    }
+                } finally {
+                    sessions.logout(session.token);
                 }
             }
         } catch (SQLException e) {
@@ -336,26 +4543,29 @@ class DatabaseManager {
     {
         
 
-        System.out.println("---Welcome to Home Loan Interest Calculation System---");
-        System.out.println("1] Login");
-        System.out.println("2] Register");
-        System.out.println("3] Exit");
-        System.out.print("Enter your choice: ");
-        int choice = sc.nextInt();
-        sc.nextLine();//change made
-        switch (choice) {
-            case 1:
-                login();
-                break;
-            case 2:
-                register();
-                break;
-            case 3:
-                System.out.println("Thanks For Visiting Our System !!");
-                break;
-            default:
-                System.out.println("Invalid choice. Exiting...");
-                break;
+        // Sub-pages return here instead of calling back into mainInterface, so the stack stays flat across logouts.
+        while (true) {
+            System.out.println("---Welcome to Home Loan Interest Calculation System---");
+            System.out.println("1] Login");
+            System.out.println("2] Register");
+            System.out.println("3] Exit");
+            System.out.print("Enter your choice: ");
+            int choice = sc.nextInt();
+            sc.nextLine();//change made
+            switch (choice) {
+                case 1:
+                    login();
+                    break;
+                case 2:
+                    register();
+                    break;
+                case 3:
+                    System.out.println("Thanks For Visiting Our System !!");
+                    return;
+                default:
+                    System.out.println("Invalid choice. Exiting...");
+                    return;
+            }
         }
     }
 
@@ -377,10 +4587,6 @@ class DatabaseManager {
                 {
                     registerUser();
                 }
-                else
-                {
-                    mainInterface();
-                }
             
     }
     public void runAdminInterface() throws ClassNotFoundException, SQLException {
@@ -390,12 +4596,16 @@ class DatabaseManager {
             System.out.println("1] View recent Loan Calculation History");
             System.out.println("2] Remove Loan");
             System.out.println("3] View All Loans from Database");
-            System.out.println("4] LogOut");
+            System.out.println("4] Export Loans to File");
+            System.out.println("5] Write Loan Snapshot");
+            System.out.println("6] Portfolio Analytics");
+            System.out.println("7] Bulk Purge Loans");
+            System.out.println("8] LogOut");
             System.out.println("Enter your Choice");
             choice = sc.nextInt();
             switch (choice) {
                 case 1:
-                    List<LoanDetails> allLoans = loanManagement.getAllLoans();
+                    List<LoanDetails> allLoans = loanManagement.getRecentLoans();
                     if (!allLoans.isEmpty()) {
                         for (LoanDetails l : allLoans) {
                             System.out.println("---Displaying recent Loan Calculation History---");
@@ -419,45 +4629,246 @@ class DatabaseManager {
                     printAllLoans();
                     break;
                 case 4:
+                    exportLoansToFile();
+                    break;
+                case 5:
+                    writeSnapshot();
+                    break;
+                case 6:
+                    printPortfolioAnalytics();
+                    break;
+                case 7:
+                    runBulkPurge();
+                    break;
+                case 8:
                     System.out.println("---Logging Out From Admin Page---");
-                    mainInterface();
                     break;
                 default:
                     System.out.println("Invalid Input");
                     break;
             }
-        } while (choice != 4);
+        } while (choice != 8);
     }
 
-    public void printAllLoans() throws SQLException, ClassNotFoundException {
-        String procedureCall = "{CALL GetAllLoans()}";
-        try (Connection conn = connect();
-             CallableStatement cstmt = conn.prepareCall(procedureCall)) {
-            
-            ResultSet rs = cstmt.executeQuery();
-            System.out.println("--- All Loan Details ---");
-            while (rs.next()) {
-                System.out.println("Loan ID: " + rs.getInt("loan_id"));
-                System.out.println("Loan Amount: " + rs.getDouble("loan_amount"));
-                System.out.println("Interest Rate: " + rs.getDouble("interest_rate"));
-                System.out.println("Tenure (years): " + rs.getInt("tenure_years"));
-                System.out.println("Monthly Payment: " + rs.getDouble("monthly_payment"));
-                System.out.println("Total Interest: " + rs.getDouble("total_interest"));
-                System.out.println("------------------------");
+    public void runBulkPurge() throws ClassNotFoundException {
+        System.out.println("1] Purge by Loan Ids");
+        System.out.println("2] Purge by Interest Rate and Tenure Range");
+        int option = sc.nextInt();
+        try {
+            long purged;
+            if (option == 1) {
+                System.out.println("Enter Loan Ids (comma separated)");
+                int[] loanIds = Arrays.stream(sc.next().split(",")).mapToInt(id -> Integer.parseInt(id.trim())).toArray();
+                purged = purgeLoans(loanIds);
+            } else if (option == 2) {
+                System.out.println("Enter minimum and maximum Interest Rate");
+                double minRate = sc.nextDouble();
+                double maxRate = sc.nextDouble();
+                System.out.println("Enter minimum and maximum Tenure (years)");
+                int minTenure = sc.nextInt();
+                int maxTenure = sc.nextInt();
+                System.out.println("Do you want to Purge every matching Loan ?yes or no");
+                if (!sc.next().equalsIgnoreCase("yes")) {
+                    return;
+                }
+                purged = purgeLoans(new LoanQueryFilter().rateBetween(minRate, maxRate).tenureBetween(minTenure, maxTenure));
+            } else {
+                System.out.println("Invalid Input");
+                return;
+            }
+            System.out.println("---" + purged + " Loans Purged---");
+            if (purged > 0 && snapshot != null) {
+                System.out.println("The loaded snapshot still lists purged loans; write a new one to drop them.");
+            }
+        } catch (SQLException | IOException | IllegalArgumentException e) {
+            System.out.println("Error purging loans: " + e.getMessage());
+        }
+    }
+
+    static final int PURGE_CHUNK_SIZE = Integer.getInteger("homeloan.purge.chunkSize", 1_000);
+
+    // Deletes the loans and their customers (a loan shares its id with the customer, as in removeUser) in chunks of
+    // PURGE_CHUNK_SIZE, one transaction per chunk. The in-memory history and the caches are updated only after a chunk
+    // commits; if a chunk fails, the earlier chunks stay deleted and the exception reports where it stopped.
+    public long purgeLoans(int[] loanIds) throws SQLException, ClassNotFoundException {
+        flushQueuedWrites();
+        LoanStore s = store();
+        long start = System.nanoTime();
+        long deleted = 0;
+        for (int from = 0; from < loanIds.length; from += PURGE_CHUNK_SIZE) {
+            int[] chunk = Arrays.copyOfRange(loanIds, from, Math.min(loanIds.length, from + PURGE_CHUNK_SIZE));
+            deleted += purgeChunk(s, chunk, chunk.length, from);
+            double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+            System.err.printf("Purged %,d of %,d ids in %.2f s (%,.0f ids/s)%n", from + chunk.length, loanIds.length,
+                    seconds, (from + chunk.length) / seconds);
+        }
+        return deleted;
+    }
+
+    public long purgeLoans(LoanQueryFilter filter) throws SQLException, ClassNotFoundException, IOException {
+        return purgeLoans(filter, loan -> true);
+    }
+
+    // Purges while scanning, one keyset page of PURGE_CHUNK_SIZE at a time: matching ids are gathered into a chunk and
+    // each full chunk is deleted before the scan reads on. Every deleted row is behind the keyset cursor, so nothing is
+    // skipped or seen twice, and memory stays at one chunk however many loans match. On the JDBC store the deletes
+    // borrow a second pooled connection while the scan holds its own.
+    public long purgeLoans(LoanQueryFilter filter, Predicate<LoanDetails> predicate)
+            throws SQLException, ClassNotFoundException, IOException {
+        flushQueuedWrites();
+        LoanStore s = store();
+        long start = System.nanoTime();
+        int[] chunk = new int[PURGE_CHUNK_SIZE];
+        int[] pending = {0};
+        // Ids purged so far, and loans actually deleted.
+        long[] purged = {0, 0};
+        s.scanLoans(filter, PURGE_CHUNK_SIZE, loan -> {
+            if (predicate.test(loan)) {
+                chunk[pending[0]++] = loan.loanId;
+                if (pending[0] == chunk.length) {
+                    purged[1] += purgeChunk(s, chunk, pending[0], purged[0]);
+                    purged[0] += pending[0];
+                    pending[0] = 0;
+                    double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+                    System.err.printf("Purged %,d ids in %.2f s (%,.0f ids/s)%n", purged[0], seconds, purged[0] / seconds);
+                }
             }
+        });
+        if (pending[0] > 0) {
+            purged[1] += purgeChunk(s, chunk, pending[0], purged[0]);
+        }
+        return purged[1];
+    }
+
+    // Deletes the first `count` ids of the chunk in one transaction, then drops them from the history and the caches.
+    // `done` is how many ids earlier chunks already purged.
+    private int purgeChunk(LoanStore s, int[] chunk, int count, long done) throws SQLException, ClassNotFoundException {
+        int[] ids = count == chunk.length ? chunk : Arrays.copyOf(chunk, count);
+        long started = PURGE_CHUNK_TIMER.start();
+        int deleted;
+        try {
+            deleted = s.deleteLoans(ids);
         } catch (SQLException e) {
+            PURGE_CHUNK_TIMER.error();
+            throw new SQLException("Purge stopped after " + done + " ids: " + e.getMessage(), e);
+        } finally {
+            PURGE_CHUNK_TIMER.stop(started);
+        }
+        for (int loanId : ids) {
+            invalidateLoan(loanId);
+            invalidateCustomer(loanId);
+        }
+        loanManagement.removeLoans(ids);
+        return deleted;
+    }
+
+    // Waits for queued quotes to reach the store. Purges need this, or a queued quote would be written back after its
+    // row was deleted, and so do snapshots, which read the store.
+    static void flushQueuedWrites() throws SQLException {
+        WriteBehindWriter w = writer;
+        if (w != null) {
+            try {
+                w.flush();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while flushing queued writes", e);
+            }
+        }
+    }
+
+    public void printAllLoans() throws SQLException, ClassNotFoundException {
+        System.out.println("--- All Loan Details ---");
+        System.out.flush();
+        try {
+            // System.out is wrapped, not owned, so the channel is deliberately left open.
+            exportLoans(Channels.newChannel(System.out), LoanExporter.Format.CSV, new LoanQueryFilter());
+        } catch (SQLException | IOException e) {
             System.out.println("Error retrieving loans: " + e.getMessage());
         }
     }
+
+    static final int EXPORT_PAGE_SIZE = Integer.getInteger("homeloan.export.pageSize", 1_000);
+
+    public long exportLoans(WritableByteChannel channel, LoanExporter.Format format, LoanQueryFilter filter)
+            throws SQLException, ClassNotFoundException, IOException {
+        LoanExporter exporter = new LoanExporter(channel, format);
+        long start = System.nanoTime();
+        exporter.writeHeader();
+        streamLoans(filter, EXPORT_PAGE_SIZE, exporter);
+        exporter.flush();
+        double seconds = Math.max(System.nanoTime() - start, 1) / 1e9;
+        System.err.printf("Exported %,d loans in %.2f s (%,.0f rows/s)%n", exporter.getRows(), seconds, exporter.getRows() / seconds);
+        return exporter.getRows();
+    }
+
+    public void streamLoans(LoanQueryFilter filter, int pageSize, LoanRowHandler handler)
+            throws SQLException, ClassNotFoundException, IOException {
+        store().scanLoans(filter, pageSize, handler);
+    }
+
+    public void printPortfolioAnalytics() {
+        System.out.println("Enter projection horizon (years)");
+        int years = sc.nextInt();
+        LoanSnapshot s = snapshot;
+        // The snapshot holds the whole book; without one, only the loans quoted in this process are analysed.
+        LoanBook book = s != null ? LoanBook.of(s) : LoanBook.of(loanManagement.getAllLoans());
+        long start = System.nanoTime();
+        PortfolioReport report = PortfolioAnalytics.analyze(book, years);
+        System.out.println("---Portfolio Analytics---");
+        report.print(System.out);
+        System.out.printf("---Analysed %,d loans in %d ms---%n", book.size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    public void writeSnapshot() throws SQLException, ClassNotFoundException {
+        System.out.println("Enter snapshot file path");
+        String path = sc.next();
+        long start = System.nanoTime();
+        try (LoanSnapshot written = LoanSnapshot.write(Paths.get(path), this)) {
+            System.out.printf("---%d Loans Written to %s in %d ms---%n", written.size(), path, (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            System.out.println("Error writing snapshot: " + e.getMessage());
+        }
+    }
+
+    public void exportLoansToFile() throws SQLException, ClassNotFoundException {
+        System.out.println("Enter export file path");
+        String path = sc.next();
+        System.out.println("Enter format (csv or json)");
+        LoanExporter.Format format = sc.next().equalsIgnoreCase("json") ? LoanExporter.Format.JSON : LoanExporter.Format.CSV;
+        LoanQueryFilter filter = new LoanQueryFilter();
+        System.out.println("Filter by interest rate range? yes or no");
+        if (sc.next().equalsIgnoreCase("yes")) {
+            System.out.print("Minimum rate: ");
+            double minRate = sc.nextDouble();
+            System.out.print("Maximum rate: ");
+            filter.rateBetween(minRate, sc.nextDouble());
+        }
+        System.out.println("Filter by tenure range? yes or no");
+        if (sc.next().equalsIgnoreCase("yes")) {
+            System.out.print("Minimum tenure (years): ");
+            int minTenure = sc.nextInt();
+            System.out.print("Maximum tenure (years): ");
+            filter.tenureBetween(minTenure, sc.nextInt());
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long rows = exportLoans(channel, format, filter);
+            System.out.println("---" + rows + " Loans Exported to " + path + "---");
+        } catch (IOException e) {
+            System.out.println("Error exporting loans: " + e.getMessage());
+        }
+    }
     
-    public void runUserInterface(String username,String pass) throws ClassNotFoundException, SQLException
+    public void runUserInterface(SessionManager.Session session) throws ClassNotFoundException, SQLException
     {
         int choice;
         do {
             System.out.println("---User Page---");
             System.out.println("1. Calculate home loan Interest");
             System.out.println("2. Search LoanCalculation  by ID");
-            System.out.println("3. LogOut");
+            System.out.println("3. EMI grid over rates and tenures");
+            System.out.println("4. What-if: affordable loan, tenure or rate");
+            System.out.println("5. LogOut");
             choice=sc.nextInt();
             switch (choice) {
                 case 1:
@@ -471,28 +4882,28 @@ class DatabaseManager {
                 System.out.print("Enter Tenure (years): ");
                 int tenureYears = sc.nextInt();
 
-                double monthlyPayment = calculator.calculateMonthlyPayment(loanAmount, interestRate, tenureYears);
-                double totalInterest = calculator.calculateTotalInterest(loanAmount, interestRate, tenureYears);
-                List<String> amortizationSchedule = calculator.generateAmortizationSchedule(loanAmount, interestRate, tenureYears);
+                if (sessions.get(session.token) == null) {
+                    System.out.println("Session expired, please log in again.");
+                    return;
+                }
+                int loanId = session.userId;
+                LoanDetails loan = new LoanDetails(loanId, loanAmount, interestRate, tenureYears);
+                calculator.quote(loan, schedule);
+                double monthlyPayment = loan.monthlyPayment;
+                double totalInterest = loan.totalInterest;
 
-               
-                int loanId = dbManager.checkLoanId( username,pass);
                 try {
-                    dbManager.insertLoan(loanId,loanAmount,interestRate,tenureYears,monthlyPayment,totalInterest);
+                    dbManager.enqueueLoan(loan);
                 } catch (SQLException e) {
                     e.printStackTrace();
                 }
-                LoanDetails loan = new LoanDetails(loanId, loanAmount, interestRate, tenureYears);
-
-                loan.monthlyPayment = monthlyPayment;
-                loan.totalInterest = totalInterest;
                 loanManagement.addLoan(loan);
                 System.out.println("---Calculations---");
                 System.out.println("Monthly Payment: " + monthlyPayment);
                 System.out.println("Total Interest: " + totalInterest);
                 totalAmountPay=loanAmount+totalInterest;
                 System.out.println("---Amortization Schedule---");
-                for (String entry : amortizationSchedule) {
+                for (String entry : schedule.asText()) {
                     System.out.println(entry);
                 }
                 System.out.println("---------------------------");
@@ -526,84 +4937,710 @@ class DatabaseManager {
                 }
                 break;
 
-                case 3:System.out.println("Logging Out");
-                mainInterface();
+                case 3:
+                    printEmiGrid();
+                    break;
+
+                case 4:
+                    runWhatIf();
+                    break;
+
+                case 5:System.out.println("Logging Out");
                 break;
                 default:
                     break;
             }
-        } while (choice!=3);
+        } while (choice!=5);
     }
 
-    public void getUserDetails(int id) throws ClassNotFoundException, SQLException
-    {
-        String sql="Select*from loans where loan_id=?";
-        String sql1="Select*from customer where customer_id=?";
-        try(Connection conn=connect();
-            PreparedStatement pst=conn.prepareStatement(sql))
-            {
-                PreparedStatement pst1=conn.prepareStatement(sql1);
-                pst.setInt(1, id);
-                pst1.setInt(1, id);
-                ResultSet rs=pst.executeQuery();
-                ResultSet rs1=pst1.executeQuery();
-                if (rs.next()) {
-                    System.out.println("------------");
-                    System.out.println("Your Loan ID :"+rs.getInt(1));
-                    if (rs1.next()) {
-                        System.out.println("Your Customer ID :"+rs1.getInt(1));
+    double[] readDoubles(String prompt) {
+        System.out.print(prompt);
+        String[] parts = sc.next().split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+
+    int[] readInts(String prompt) {
+        System.out.print(prompt);
+        return Arrays.stream(sc.next().split(",")).mapToInt(part -> Integer.parseInt(part.trim())).toArray();
+    }
+
+    public void printEmiGrid() {
+        try {
+            double[] amounts = readDoubles("Enter Loan Amounts (comma separated): ");
+            double[] rates = readDoubles("Enter Interest Rates (comma separated): ");
+            int[] tenures = readInts("Enter Tenures in years (comma separated): ");
+            EmiGrid grid = calculator.calculateGrid(amounts, rates, tenures);
+            for (int a = 0; a < amounts.length; a++) {
+                System.out.println("---EMI grid for loan amount " + amounts[a] + "---");
+                StringBuilder header = new StringBuilder(String.format("%10s", "rate/yrs"));
+                for (int tenure : tenures) {
+                    header.append(String.format("%12d", tenure));
+                }
+                System.out.println(header);
+                for (int r = 0; r < rates.length; r++) {
+                    StringBuilder row = new StringBuilder(String.format("%10.3f", rates[r]));
+                    for (int t = 0; t < tenures.length; t++) {
+                        row.append(String.format("%12.2f", grid.monthlyPayment(r, t, a)));
                     }
+                    System.out.println(row);
                 }
             }
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid grid input: " + e.getMessage());
+        }
+    }
+
+    public void runWhatIf() {
+        System.out.println("1. Maximum loan for a monthly payment");
+        System.out.println("2. Tenure needed for a monthly payment");
+        System.out.println("3. Interest rate implied by a monthly payment");
+        int option = sc.nextInt();
+        try {
+            switch (option) {
+                case 1:
+                    System.out.print("Enter Monthly Payment: ");
+                    double payment = sc.nextDouble();
+                    System.out.print("Enter Interest Rate: ");
+                    double rate = sc.nextDouble();
+                    System.out.print("Enter Tenure (years): ");
+                    int tenure = sc.nextInt();
+                    System.out.printf("Maximum Loan Amount: %.2f%n", calculator.maxAffordableLoan(payment, rate, tenure));
+                    break;
+                case 2:
+                    System.out.print("Enter Loan Amount: ");
+                    double amount = sc.nextDouble();
+                    System.out.print("Enter Interest Rate: ");
+                    double tenureRate = sc.nextDouble();
+                    System.out.print("Enter Monthly Payment: ");
+                    double target = sc.nextDouble();
+                    int months = calculator.tenureMonthsForPayment(amount, tenureRate, target);
+                    System.out.println("Tenure Needed: " + months + " months (" + months / 12 + " years " + months % 12 + " months)");
+                    break;
+                case 3:
+                    System.out.print("Enter Loan Amount: ");
+                    double principal = sc.nextDouble();
+                    System.out.print("Enter Monthly Payment: ");
+                    double emi = sc.nextDouble();
+                    System.out.print("Enter Tenure (years): ");
+                    int years = sc.nextInt();
+                    System.out.printf("Implied Interest Rate: %.4f%%%n", calculator.rateForPayment(principal, emi, years));
+                    break;
+                default:
+                    System.out.println("Invalid option");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    public void getUserDetails(int id) throws ClassNotFoundException, SQLException
+    {
+        // Goes through getLoanById so a loan still queued for write-behind is found.
+        LoanDetails loan = getLoanById(id);
+        if (loan == null) {
+            return;
+        }
+        BorrowerDetails customer = getCustomerById(id);
+        System.out.println("------------");
+        System.out.println("Your Loan ID :"+loan.loanId);
+        if (customer != null) {
+            System.out.println("Your Customer ID :"+customer.borrowerId);
+        }
     }
     public void removeUser() throws SQLException, ClassNotFoundException
     {
-        String sql="DELETE FROM LOANS WHERE LOAN_ID=?";
-        String sql1="DELETE FROM Customer WHERE customer_ID=?";
-        try(Connection conn=connect();
-            PreparedStatement pst=conn.prepareStatement(sql))
-            {
-                System.out.println("---Enter details to Remove User---");
-                            System.out.println("Enter loan id");
-                            int idl=sc.nextInt();
-                            System.out.println("Enter Customer id");
-                            int idb=sc.nextInt();
-                            if(idl==idb)
-                            {
-                                pst.setInt(1, idl);
-                                PreparedStatement pst1=conn.prepareStatement(sql1);
-                                pst1.setInt(1, idb);
-                                conn.setAutoCommit(false);
-                                System.out.println("Do you want to Remove User ?yes or no");
-                                String ask=sc.next();
-                                if (ask.equalsIgnoreCase("yes")) {
-                                    pst.executeUpdate();
-                                    pst1.executeUpdate();
-                                    System.out.println("----------");
-                                    conn.commit();   
-                                }                   
+        long started = REMOVE_USER_TIMER.start();
+        try {
+                    System.out.println("---Enter details to Remove User---");
+                                System.out.println("Enter loan id");
+                                int idl=sc.nextInt();
+                                System.out.println("Enter Customer id");
+                                int idb=sc.nextInt();
+                                if(idl==idb)
+                                {
+                                    // Confirm first so no transaction is held open while waiting on the prompt.
+                                    System.out.println("Do you want to Remove User ?yes or no");
+                                    String ask=sc.next();
+                                    if (ask.equalsIgnoreCase("yes")) {
+                                        store().deleteLoans(new int[]{idl});
+                                        System.out.println("----------");
+                                        invalidateLoan(idl);
+                                        invalidateCustomer(idb);
+                                        loanManagement.removeLoan(idl);
+                                    }                   
+                                }
                                 else
                                 {
-                                    conn.rollback();
-                                }            
-                                      
-                            }
-                            else
-                            {
-                                System.out.println("Loan Id != Customer Id");
+                                    System.out.println("Loan Id != Customer Id");
+                                }
+        } catch (SQLException e) {
+            REMOVE_USER_TIMER.error();
+            throw e;
+        } finally {
+            REMOVE_USER_TIMER.stop(started);
+        }
+    }
+}
+
+// Registers DatabaseManager's checkpoint hooks with CRaC when the runtime provides it: jdk.crac on a CRaC-enabled JDK
+// or org.crac on the class path. Both are looked up reflectively, so there is no build dependency and any other JVM
+// simply skips registration.
+class CheckpointSupport {
+    // CRaC contexts hold resources weakly, so the proxy is kept reachable here.
+    private static Object resource;
+
+    static boolean register() {
+        for (String pkg : new String[]{"jdk.crac", "org.crac"}) {
+            try {
+                Class<?> resourceType = Class.forName(pkg + ".Resource");
+                Class<?> contextType = Class.forName(pkg + ".Context");
+                Object context = Class.forName(pkg + ".Core").getMethod("getGlobalContext").invoke(null);
+                Object hooks = Proxy.newProxyInstance(CheckpointSupport.class.getClassLoader(), new Class<?>[]{resourceType},
+                        (proxy, method, args) -> {
+                            switch (method.getName()) {
+                                case "beforeCheckpoint":
+                                    DatabaseManager.beforeCheckpoint();
+                                    return null;
+                                case "afterRestore":
+                                    DatabaseManager.afterRestore();
+                                    return null;
+                                case "hashCode":
+                                    return System.identityHashCode(proxy);
+                                case "equals":
+                                    return proxy == args[0];
+                                default:
+                                    return "DatabaseManager checkpoint hooks";
                             }
-                        }
+                        });
+                contextType.getMethod("register", resourceType).invoke(context, hooks);
+                resource = hooks;
+                return true;
+            } catch (ClassNotFoundException e) {
+                // not this flavour of CRaC; try the next
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                System.err.println("Checkpoint hooks not registered: " + e);
+                return false;
+            }
+        }
+        return false;
+    }
+}
+
+class QuoteService {
+    static final int MAX_GRID_CELLS = 100_000;
+    // Largest loan amount every calculator accepts; the fixed-point one needs the principal in paisa within MAX_PAISA.
+    static final double MAX_LOAN_AMOUNT = FixedPointLoanCalculator.toRupees(FixedPointLoanCalculator.MAX_PAISA);
+    // Largest value the DECIMAL(15,2) amount columns can hold; payments and total interest are checked against it.
+    static final double MAX_STORED_AMOUNT = 9_999_999_999_999.99;
+
+    private final DatabaseManager db;
+    private final LoanCalculator calculator;
+    private final LoanManagement history;
+    private final SessionManager sessions;
+
+    public QuoteService(DatabaseManager db, LoanCalculator calculator, LoanManagement history, SessionManager sessions) {
+        this.db = db;
+        this.calculator = calculator;
+        this.history = history;
+        this.sessions = sessions;
+    }
+
+    static void validate(double loanAmount, double interestRate, int tenureYears) {
+        if (!(loanAmount > 0)) {
+            throw new IllegalArgumentException("Loan amount must be positive");
+        }
+        if (loanAmount > MAX_LOAN_AMOUNT) {
+            throw new IllegalArgumentException("Loan amount must not exceed " + BigDecimal.valueOf(MAX_LOAN_AMOUNT).toPlainString());
+        }
+        if (!(interestRate >= 0) || interestRate > 100) {
+            throw new IllegalArgumentException("Interest rate must be between 0 and 100");
+        }
+        if (tenureYears <= 0 || tenureYears > 100) {
+            throw new IllegalArgumentException("Tenure must be between 1 and 100 years");
+        }
+    }
+
+    // Valid inputs can still produce a quote that overflows at extreme rates and tenures; such a row could never be
+    // stored, so it is refused before it reaches the write-behind queue.
+    static void checkQuote(LoanDetails loan) {
+        if (!isStorable(loan.monthlyPayment) || !isStorable(loan.totalInterest)) {
+            throw new IllegalArgumentException("Quote is out of range: monthly payment " + loan.monthlyPayment
+                    + ", total interest " + loan.totalInterest);
+        }
+    }
+
+    private static boolean isStorable(double amount) {
+        return Double.isFinite(amount) && Math.abs(amount) <= MAX_STORED_AMOUNT;
+    }
+
+    public SessionManager.Session login(String name, String password) throws SQLException, ClassNotFoundException {
+        return sessions.login(name, password);
+    }
+
+    public SessionManager.Session session(String token) {
+        return sessions.get(token);
+    }
+
+    public void logout(String token) {
+        sessions.logout(token);
+    }
+
+    public LoanDetails quote(int loanId, double loanAmount, double interestRate, int tenureYears)
+            throws SQLException, ClassNotFoundException {
+        validate(loanAmount, interestRate, tenureYears);
+        LoanDetails loan = new LoanDetails(loanId, loanAmount, interestRate, tenureYears);
+        calculator.quote(loan);
+        checkQuote(loan);
+        db.enqueueLoan(loan);
+        history.addLoan(loan);
+        return loan;
+    }
+
+    public EmiGrid grid(double[] loanAmounts, double[] interestRates, int[] tenureYears) {
+        if (loanAmounts.length * (long) interestRates.length * tenureYears.length > MAX_GRID_CELLS) {
+            throw new IllegalArgumentException("Grid larger than " + MAX_GRID_CELLS + " cells");
+        }
+        for (double rate : interestRates) {
+            for (int tenure : tenureYears) {
+                for (double amount : loanAmounts) {
+                    validate(amount, rate, tenure);
+                }
+            }
+        }
+        return calculator.calculateGrid(loanAmounts, interestRates, tenureYears);
+    }
+
+    public LoanDetails findLoan(int loanId) throws SQLException, ClassNotFoundException {
+        return db.getLoanById(loanId);
+    }
+}
+
+class QuoteHttpServer {
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public QuoteHttpServer(QuoteService service, int port) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/login", exchange -> handle(exchange, () -> {
+            Map<String, String> params = queryParams(exchange);
+            SessionManager.Session session = service.login(required(params, "user"), required(params, "password"));
+            if (session == null) {
+                return new Response(401, "{\"error\":\"invalid credentials\"}");
+            }
+            return new Response(200, "{\"token\":\"" + session.token + "\",\"user_id\":" + session.userId
+                    + ",\"role\":\"" + session.role + "\"}");
+        }));
+        // Quotes carry the token from /login; user and password are still accepted but pay the hashing cost each time.
+        server.createContext("/quote", exchange -> handle(exchange, () -> {
+            Map<String, String> params = queryParams(exchange);
+            String token = params.get("token");
+            SessionManager.Session session = token != null
+                    ? service.session(token)
+                    : service.login(required(params, "user"), required(params, "password"));
+            if (session == null) {
+                return new Response(401, "{\"error\":\"" + (token != null ? "session expired" : "invalid credentials") + "\"}");
+            }
+            try {
+                LoanDetails loan = service.quote(session.userId, Double.parseDouble(required(params, "amount")),
+                        Double.parseDouble(required(params, "rate")), Integer.parseInt(required(params, "tenure")));
+                return new Response(200, toJson(loan));
+            } finally {
+                if (token == null) {
+                    service.logout(session.token);
+                }
+            }
+        }));
+        server.createContext("/logout", exchange -> handle(exchange, () -> {
+            service.logout(required(queryParams(exchange), "token"));
+            return new Response(200, "{\"status\":\"ok\"}");
+        }));
+        server.createContext("/loan", exchange -> handle(exchange, () -> {
+            int loanId = Integer.parseInt(required(queryParams(exchange), "id"));
+            LoanDetails loan = service.findLoan(loanId);
+            return loan == null ? new Response(404, "{\"error\":\"loan " + loanId + " not found\"}") : new Response(200, toJson(loan));
+        }));
+        server.createContext("/grid", exchange -> handle(exchange, () -> {
+            Map<String, String> params = queryParams(exchange);
+            return new Response(200, toJson(service.grid(parseDoubles(required(params, "amounts")),
+                    parseDoubles(required(params, "rates")), parseInts(required(params, "tenures")))));
+        }));
+        server.createContext("/health", exchange -> handle(exchange, () -> new Response(200, "{\"status\":\"ok\"}")));
+        server.createContext("/metrics", exchange -> {
+            byte[] body = Metrics.prometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    // -Dhomeloan.http.threads sizes the request pool on JDK 17-20, which have no virtual threads; it caps how many
+    // requests are served at once.
+    static final int PLATFORM_THREADS = Integer.getInteger("homeloan.http.threads", 64);
+
+    // Virtual threads when the runtime has them (JDK 21+), otherwise a bounded platform-thread pool.
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads need JDK 21 or later (running " + Runtime.version().feature()
+                    + "); serving requests on " + PLATFORM_THREADS + " platform threads, see -Dhomeloan.http.threads");
+            return Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private interface Handler {
+        Response handle() throws Exception;
+    }
+
+    private static void handle(HttpExchange exchange, Handler handler) throws IOException {
+        Response response;
+        try {
+            response = handler.handle();
+        } catch (IllegalArgumentException e) {
+            response = new Response(400, "{\"error\":\"" + escape(e.getMessage()) + "\"}");
+        } catch (Exception e) {
+            response = new Response(500, "{\"error\":\"" + escape(e.getMessage()) + "\"}");
+        }
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    static Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return params;
+    }
+
+    static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    static double[] parseDoubles(String csv) {
+        return Arrays.stream(csv.split(",")).mapToDouble(part -> Double.parseDouble(part.trim())).toArray();
+    }
+
+    static int[] parseInts(String csv) {
+        return Arrays.stream(csv.split(",")).mapToInt(part -> Integer.parseInt(part.trim())).toArray();
+    }
+
+    static String escape(String text) {
+        return text == null ? "" : text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    static String toJson(LoanDetails loan) {
+        return LoanExporter.appendJson(new StringBuilder(160), loan).toString();
+    }
+
+    static StringBuilder appendDecimals(StringBuilder json, double[] values, int scale) {
+        json.append('[');
+        for (int i = 0; i < values.length; i++) {
+            LoanExporter.appendDecimal(json.append(i == 0 ? "" : ","), values[i], scale, true);
+        }
+        return json.append(']');
+    }
+
+    static String toJson(EmiGrid grid) {
+        StringBuilder json = new StringBuilder("{\"loan_amounts\":");
+        appendDecimals(json, grid.loanAmounts, LoanExporter.AMOUNT_SCALE).append(",\"interest_rates\":");
+        appendDecimals(json, grid.interestRates, LoanExporter.RATE_SCALE)
+                .append(",\"tenure_years\":").append(Arrays.toString(grid.tenureYears))
+                .append(",\"monthly_payments\":[");
+        for (int r = 0; r < grid.interestRates.length; r++) {
+            json.append(r == 0 ? "[" : ",[");
+            for (int t = 0; t < grid.tenureYears.length; t++) {
+                json.append(t == 0 ? "[" : ",[");
+                for (int a = 0; a < grid.loanAmounts.length; a++) {
+                    LoanExporter.appendDecimal(json.append(a == 0 ? "" : ","), grid.monthlyPayment(r, t, a),
+                            LoanExporter.AMOUNT_SCALE, true);
+                }
+                json.append(']');
+            }
+            json.append(']');
+        }
+        return json.append("]}").toString();
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+}
+
+class Metrics {
+    // Read once so the JIT folds every timer call into a no-op when metrics are off.
+    static final boolean ENABLED = Boolean.getBoolean("homeloan.metrics");
+
+    private static final Map<String, Timer> TIMERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, DoubleSupplier> GAUGES = new ConcurrentSkipListMap<>();
+
+    static final class Timer {
+        final String name;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+
+        Timer(String name) {
+            this.name = name;
+        }
+
+        long start() {
+            return ENABLED ? System.nanoTime() : 0L;
+        }
+
+        void stop(long started) {
+            if (ENABLED) {
+                histogram.record(System.nanoTime() - started);
+            }
+        }
+
+        void error() {
+            if (ENABLED) {
+                errors.increment();
+            }
+        }
+    }
+
+    static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    static void gauge(String name, DoubleSupplier value) {
+        GAUGES.put(name, value);
+    }
+
+    // Prometheus text exposition format, version 0.0.4.
+    static String prometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP homeloan_operation_seconds Latency of calculator and JDBC operations.\n");
+        out.append("# TYPE homeloan_operation_seconds summary\n");
+        for (Timer timer : TIMERS.values()) {
+            LatencyHistogram h = timer.histogram;
+            for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                out.append("homeloan_operation_seconds{op=\"").append(timer.name).append("\",quantile=\"").append(quantile)
+                        .append("\"} ").append(h.percentile(quantile * 100) / 1e9).append('\n');
+            }
+            out.append("homeloan_operation_seconds_sum{op=\"").append(timer.name).append("\"} ").append(h.getTotalNanos() / 1e9).append('\n');
+            out.append("homeloan_operation_seconds_count{op=\"").append(timer.name).append("\"} ").append(h.getCount()).append('\n');
+        }
+        out.append("# HELP homeloan_operation_errors_total Failed calculator and JDBC operations.\n");
+        out.append("# TYPE homeloan_operation_errors_total counter\n");
+        for (Timer timer : TIMERS.values()) {
+            out.append("homeloan_operation_errors_total{op=\"").append(timer.name).append("\"} ").append(timer.errors.sum()).append('\n');
+        }
+        for (Map.Entry<String, DoubleSupplier> gauge : GAUGES.entrySet()) {
+            String name = "homeloan_" + gauge.getKey().replace('.', '_');
+            out.append("# TYPE ").append(name).append(" gauge\n");
+            out.append(name).append(' ').append(gauge.getValue().getAsDouble()).append('\n');
+        }
+        return out.toString();
+    }
+
+    static void reset() {
+        for (Timer timer : TIMERS.values()) {
+            timer.histogram.reset();
+            timer.errors.reset();
+        }
+    }
+}
+
+class LatencyHistogram {
+    // 32 linear sub-buckets per power of two keeps every recorded value within ~3% of its bucket.
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) Math.max(value, 0);
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketIndex(nanos));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // retry until the larger value is published
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalNanos.get() / count;
+    }
+
+    public long percentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
     }
 }
 
 public class HomeLoanInterestCalculationSystem {
-    public static void main(String[] args) throws SQLException, ClassNotFoundException {
+    public static void main(String[] args) throws SQLException, ClassNotFoundException, IOException {
+        boolean oneShot = args.length > 0 && (args[0].equals("--quote") || args[0].equals("--warmup-only"));
+        if (DatabaseManager.WARM_UP && !oneShot) {
+            DatabaseManager.startWarmUp();
+        }
+        CheckpointSupport.register();
         DatabaseManager dbManager = new DatabaseManager();
         try {
             dbManager.createTables();
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        if (args.length > 3 && args[0].equals("--quote")) {
+            printQuote(Double.parseDouble(args[1]), Double.parseDouble(args[2]), Integer.parseInt(args[3]));
+            DatabaseManager.shutdown();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--warmup-only")) {
+            // A training run for AppCDS: java -XX:ArchiveClassesAtExit=homeloan.jsa ... --warmup-only, then start
+            // with -XX:SharedArchiveFile=homeloan.jsa to map the already parsed and verified classes.
+            long start = System.nanoTime();
+            DatabaseManager.warmUp();
+            DatabaseManager.shutdown();
+            System.out.printf("Warm-up completed in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--snapshot")) {
+            args = loadSnapshot(dbManager, Paths.get(args[1]), Arrays.copyOfRange(args, 2, args.length));
+        }
+        if (args.length > 1 && args[0].equals("--ingest")) {
+            Path csv = Paths.get(args[1]);
+            Path rejects = args.length > 2 ? Paths.get(args[2]) : Paths.get(args[1] + ".rejects");
+            try {
+                IngestReport report = new LoanIngestor(DatabaseManager.store(), DatabaseManager.calculator).ingest(csv, rejects);
+                System.out.println(report);
+                if (report.rowsRejected > 0) {
+                    System.out.println("Rejected rows written to " + rejects);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                DatabaseManager.shutdown();
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            QuoteService service = new QuoteService(dbManager, DatabaseManager.calculator, DatabaseManager.loanManagement,
+                    DatabaseManager.sessions);
+            QuoteHttpServer server = new QuoteHttpServer(service, port);
+            server.start();
+            System.out.println("Quote service listening on http://localhost:" + server.getPort());
+            return;
+        }
         dbManager.mainInterface();
     }
+
+    static void printQuote(double loanAmount, double interestRate, int tenureYears) {
+        QuoteService.validate(loanAmount, interestRate, tenureYears);
+        LoanCalculator calculator = DatabaseManager.calculator;
+        System.out.printf("Monthly payment: %.2f%n", calculator.calculateMonthlyPayment(loanAmount, interestRate, tenureYears));
+        System.out.printf("Total interest: %.2f%n", calculator.calculateTotalInterest(loanAmount, interestRate, tenureYears));
+    }
+
+    // Loads the in-memory loan history from a snapshot file (building it from the database the first time) and keeps
+    // the snapshot open so new quotes are appended to it. Returns the remaining arguments.
+    static String[] loadSnapshot(DatabaseManager dbManager, Path path, String[] rest) throws SQLException, ClassNotFoundException, IOException {
+        long start = System.nanoTime();
+        LoanSnapshot snapshot = Files.exists(path) ? LoanSnapshot.open(path, true) : LoanSnapshot.write(path, dbManager);
+        snapshot.loadInto(DatabaseManager.loanManagement);
+        DatabaseManager.attachSnapshot(snapshot);
+        // shutdown() closes the snapshot once the queued quotes have been committed and appended.
+        Runtime.getRuntime().addShutdownHook(new Thread(DatabaseManager::shutdown, "snapshot-shutdown"));
+        System.out.printf("Loaded %d loans from %s in %d ms%n", snapshot.size(), path, (System.nanoTime() - start) / 1_000_000);
+        return rest;
+    }
 }
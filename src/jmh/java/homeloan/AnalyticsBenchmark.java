@@ -0,0 +1,43 @@
+package homeloan;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A 30-year portfolio projection over the fork-join pool. The gc profiler counts allocation on every thread, so the
+// workers' buffers are included in gc.alloc.rate.norm.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class AnalyticsBenchmark {
+    static final int HORIZON_YEARS = 30;
+
+    @Param({"100000", "1000000", "5000000"})
+    public int size;
+
+    private LoanBook book;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        LoanFixtures fixtures = new LoanFixtures(size, 19);
+        book = new LoanBook(fixtures.amounts, fixtures.rates, fixtures.tenures);
+    }
+
+    @Benchmark
+    public PortfolioReport analyze() {
+        return PortfolioAnalytics.analyze(book, HORIZON_YEARS);
+    }
+}
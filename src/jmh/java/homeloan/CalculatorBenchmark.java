@@ -0,0 +1,77 @@
+package homeloan;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Per-loan quotes across books of 1k to 10M loans. Every call quotes the next loan of the book, so the larger books
+// also pay for streaming the inputs from memory. SampleTime times single calls, so its percentiles are per quote.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class CalculatorBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private final HomeLoanCalculator calculator = new HomeLoanCalculator();
+    private final FixedPointLoanCalculator fixedPoint = new FixedPointLoanCalculator();
+    private LoanFixtures loans;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loans = new LoanFixtures(size, 42);
+    }
+
+    private int nextLoan() {
+        int i = next;
+        next = i + 1 == size ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public double calculateMonthlyPayment() {
+        int i = nextLoan();
+        return calculator.calculateMonthlyPayment(loans.amounts[i], loans.rates[i], loans.tenures[i]);
+    }
+
+    @Benchmark
+    public double calculateTotalInterest() {
+        int i = nextLoan();
+        return calculator.calculateTotalInterest(loans.amounts[i], loans.rates[i], loans.tenures[i]);
+    }
+
+    @Benchmark
+    public double fixedPointMonthlyPayment() {
+        int i = nextLoan();
+        return fixedPoint.calculateMonthlyPayment(loans.amounts[i], loans.rates[i], loans.tenures[i]);
+    }
+
+    // EMI plus the interest summed over the exact schedule.
+    @Benchmark
+    public double fixedPointQuote() {
+        int i = nextLoan();
+        LoanDetails loan = new LoanDetails(i, loans.amounts[i], loans.rates[i], loans.tenures[i]);
+        fixedPoint.quote(loan);
+        return loan.totalInterest;
+    }
+
+    // One call quotes the whole book.
+    @Benchmark
+    public BatchQuoteResult calculateBatch() {
+        return calculator.calculateBatch(loans.amounts, loans.rates, loans.tenures);
+    }
+}
@@ -0,0 +1,84 @@
+package homeloan;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// DatabaseManager's insert and lookup paths through the JDBC store, against an in-memory H2 database in MySQL mode as
+// the embedded stand-in for the real server. Lookups go through the read-through cache, as they do in the app.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dhomeloan.store=jdbc",
+        "-Dhomeloan.db.driver=org.h2.Driver",
+        "-Dhomeloan.db.url=jdbc:h2:mem:bench;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "-Dhomeloan.warmup=false"})
+@State(Scope.Benchmark)
+public class DatabaseBenchmark {
+    static final int BATCH_ROWS = 10_000;
+
+    @Param({"1000", "10000", "100000"})
+    public int size;
+
+    private final DatabaseManager db = new DatabaseManager();
+    private LoanFixtures fixtures;
+    private int[] lookups;
+    private int next;
+    private int nextLoanId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, ClassNotFoundException {
+        db.createTables();
+        LoanStore store = DatabaseManager.store();
+        store.clear();
+        fixtures = new LoanFixtures(size, 13);
+        List<LoanDetails> batch = new ArrayList<>(BATCH_ROWS);
+        for (int i = 0; i < size; i++) {
+            batch.add(fixtures.loan(i));
+            if (batch.size() == BATCH_ROWS || i == size - 1) {
+                store.insertBatch(batch, Collections.emptyList());
+                batch.clear();
+            }
+        }
+        lookups = LoanFixtures.lookups(size, size, 17);
+        nextLoanId = size;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.shutdown();
+    }
+
+    // Every call stores a new loan id, so the table keeps growing from the filled size.
+    @Benchmark
+    public void insertLoan() throws SQLException, ClassNotFoundException {
+        int i = nextLoanId % size;
+        nextLoanId++;
+        db.insertLoan(nextLoanId, fixtures.amounts[i], fixtures.rates[i], fixtures.tenures[i],
+                fixtures.amounts[i] * 0.01, fixtures.amounts[i] * 0.5);
+    }
+
+    @Benchmark
+    public LoanDetails getLoanById() throws SQLException, ClassNotFoundException {
+        int i = next;
+        next = i + 1 == size ? 0 : i + 1;
+        return db.getLoanById(lookups[i]);
+    }
+}
@@ -0,0 +1,262 @@
+package homeloan;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Soak test for the quote workflow: synthetic users log in and replay the quote, search, history and admin flows at a
+// fixed concurrency against the configured store, normally the embedded one (-Dhomeloan.store=memory). Prints progress
+// every few seconds, then throughput, latency percentiles per flow and the correctness drift the load exposed.
+// Usage: LoadGenerator [concurrency] [seconds] [users]
+public class LoadGenerator {
+    enum Flow { LOGIN, QUOTE, SEARCH, HISTORY, ADMIN }
+
+    // Out of every 100 operations; whatever is left over goes to the admin flow.
+    static final int QUOTE_PERCENT = 60;
+    static final int SEARCH_PERCENT = 25;
+    static final int HISTORY_PERCENT = 10;
+    static final int PROGRESS_INTERVAL_S = 5;
+    static final String ADMIN_NAME = "load-admin";
+    static final String ADMIN_PASSWORD = "load-admin-pw";
+
+    private final DatabaseManager db = DatabaseManager.dbManager;
+    private final QuoteService service = new QuoteService(DatabaseManager.dbManager, DatabaseManager.calculator,
+            DatabaseManager.loanManagement, DatabaseManager.sessions);
+    private final String[] names;
+    private final String[] passwords;
+    private final int[] userIds;
+    private final AtomicReferenceArray<SessionManager.Session> sessions;
+    private volatile SessionManager.Session adminSession;
+    private final Map<Flow, LatencyHistogram> latencies = new EnumMap<>(Flow.class);
+    private final Set<Integer> quotedLoanIds = ConcurrentHashMap.newKeySet();
+    private final LongAdder operations = new LongAdder();
+    private final LongAdder quotes = new LongAdder();
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder customerMismatches = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile Exception firstError;
+
+    LoadGenerator(int users) {
+        names = new String[users];
+        passwords = new String[users];
+        userIds = new int[users];
+        sessions = new AtomicReferenceArray<>(users);
+        for (Flow flow : Flow.values()) {
+            latencies.put(flow, new LatencyHistogram());
+        }
+    }
+
+    // Registers an admin and the users the way the Register menu does: a customer row, then the login. Hashing runs in
+    // parallel since it dominates; the inserts stay sequential like real sign-ups.
+    void register() throws SQLException, ClassNotFoundException {
+        for (int i = 0; i < names.length; i++) {
+            names[i] = "load-user-" + i;
+            passwords[i] = "pw-" + i;
+        }
+        String[] hashes = Arrays.stream(passwords).parallel().map(PasswordHasher::hash).toArray(String[]::new);
+        LoanStore store = DatabaseManager.store();
+        store.insertUser(ADMIN_NAME, PasswordHasher.hash(ADMIN_PASSWORD));
+        for (int i = 0; i < names.length; i++) {
+            db.insertBorrower(names[i], names[i] + "@example.com", "9" + (100_000_000 + i));
+            userIds[i] = store.insertUser(names[i], hashes[i]);
+        }
+        SessionManager.Session admin = adminSession();
+        if (admin.role != SessionManager.Role.ADMIN) {
+            throw new IllegalStateException(ADMIN_NAME + " did not get the admin role; run against an empty store");
+        }
+    }
+
+    // Soak runs outlive the session TTL, so both kinds of session are renewed on demand.
+    private SessionManager.Session adminSession() throws SQLException, ClassNotFoundException {
+        SessionManager.Session session = adminSession;
+        if (session == null || service.session(session.token) == null) {
+            session = service.login(ADMIN_NAME, ADMIN_PASSWORD);
+            if (session == null) {
+                throw new IllegalStateException("Login failed for " + ADMIN_NAME);
+            }
+            adminSession = session;
+        }
+        return session;
+    }
+
+    private SessionManager.Session session(int user) throws SQLException, ClassNotFoundException {
+        SessionManager.Session session = sessions.get(user);
+        if (session == null || service.session(session.token) == null) {
+            long start = System.nanoTime();
+            session = service.login(names[user], passwords[user]);
+            latencies.get(Flow.LOGIN).record(System.nanoTime() - start);
+            if (session == null) {
+                throw new IllegalStateException("Login failed for " + names[user]);
+            }
+            sessions.set(user, session);
+        }
+        return session;
+    }
+
+    private final class Worker implements Runnable {
+        private final Random random;
+        private final long deadline;
+        private final AmortizationSchedule schedule = new AmortizationSchedule();
+
+        Worker(long seed, long deadline) {
+            this.random = new Random(seed);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                int user = random.nextInt(names.length);
+                int roll = random.nextInt(100);
+                Flow flow = roll < QUOTE_PERCENT ? Flow.QUOTE
+                        : roll < QUOTE_PERCENT + SEARCH_PERCENT ? Flow.SEARCH
+                        : roll < QUOTE_PERCENT + SEARCH_PERCENT + HISTORY_PERCENT ? Flow.HISTORY
+                        : Flow.ADMIN;
+                try {
+                    SessionManager.Session session = flow == Flow.ADMIN ? adminSession() : session(user);
+                    long start = System.nanoTime();
+                    switch (flow) {
+                        case QUOTE:
+                            quote(session, user);
+                            break;
+                        case SEARCH:
+                            db.getLoanById(userIds[random.nextInt(userIds.length)]);
+                            break;
+                        case HISTORY:
+                            DatabaseManager.loanManagement.getRecentLoans();
+                            break;
+                        default:
+                            admin();
+                            break;
+                    }
+                    latencies.get(flow).record(System.nanoTime() - start);
+                    operations.increment();
+                } catch (Exception e) {
+                    if (firstError == null) {
+                        firstError = e;
+                    }
+                    errors.increment();
+                }
+            }
+        }
+
+        // The User page's quote: the loan id is the user id, the schedule is filled, the quote is queued for the
+        // database and getUserDetails reads the loan and the customer with that id straight back.
+        private void quote(SessionManager.Session session, int user) throws SQLException, ClassNotFoundException {
+            double loanAmount = 500_000 + random.nextInt(95) * 100_000;
+            double interestRate = 6 + random.nextInt(25) * 0.25;
+            int tenureYears = 5 + random.nextInt(6) * 5;
+            LoanDetails loan = service.quote(session.userId, loanAmount, interestRate, tenureYears);
+            DatabaseManager.calculator.fillAmortizationSchedule(loanAmount, interestRate, tenureYears, schedule);
+            quotes.increment();
+            quotedLoanIds.add(loan.loanId);
+            LoanDetails seen = db.getLoanById(loan.loanId);
+            if (seen == null || seen.monthlyPayment != loan.monthlyPayment) {
+                staleReads.increment();
+            }
+            BorrowerDetails customer = db.getCustomerById(loan.loanId);
+            if (customer == null || !names[user].equals(customer.borrowerName)) {
+                customerMismatches.increment();
+            }
+        }
+    }
+
+    // The admin page's recent history plus a filtered scan of the stored loans.
+    private void admin() throws SQLException, ClassNotFoundException, IOException {
+        DatabaseManager.loanManagement.getRecentLoans();
+        long[] rows = new long[1];
+        db.streamLoans(new LoanQueryFilter().rateBetween(8, 9), DatabaseManager.EXPORT_PAGE_SIZE, loan -> rows[0]++);
+    }
+
+    void run(int concurrency, int seconds, PrintStream out) throws Exception {
+        WriteBehindWriter writer = DatabaseManager.writer();
+        long failedBefore = writer.getRowsFailed();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> running = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            running.add(workers.submit(new Worker(31L * i + 7, deadline)));
+        }
+        workers.shutdown();
+        long lastOperations = 0;
+        while (!workers.awaitTermination(PROGRESS_INTERVAL_S, TimeUnit.SECONDS)) {
+            long total = operations.sum();
+            Runtime runtime = Runtime.getRuntime();
+            out.printf("t=%3ds ops/s=%,10.0f queue=%,6d rowsFailed=%,8d heap=%,6d MB%n",
+                    TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start), (total - lastOperations) / (double) PROGRESS_INTERVAL_S,
+                    writer.getQueueDepth(), writer.getRowsFailed() - failedBefore,
+                    (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024));
+            lastOperations = total;
+        }
+        for (Future<?> worker : running) {
+            worker.get();
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        long drainStart = System.nanoTime();
+        writer.flush();
+        long drainMillis = (System.nanoTime() - drainStart) / 1_000_000;
+
+        out.printf("%-8s %12s %12s %10s %10s %10s %10s%n", "flow", "count", "ops/s", "p50 us", "p99 us", "p99.9 us", "max us");
+        for (Flow flow : Flow.values()) {
+            LatencyHistogram histogram = latencies.get(flow);
+            out.printf("%-8s %,12d %,12.0f %,10.1f %,10.1f %,10.1f %,10.1f%n", flow.name().toLowerCase(), histogram.getCount(),
+                    histogram.getCount() / elapsedSeconds, histogram.percentile(50) / 1e3, histogram.percentile(99) / 1e3,
+                    histogram.percentile(99.9) / 1e3, histogram.getMaxNanos() / 1e3);
+        }
+        out.printf("Throughput: %,.0f ops/s, %,.0f quotes/s over %.1f s%n", operations.sum() / elapsedSeconds,
+                quotes.sum() / elapsedSeconds, elapsedSeconds);
+        out.printf("Write-behind drain after load: %,d ms%n", drainMillis);
+
+        long[] stored = new long[1];
+        db.streamLoans(new LoanQueryFilter(), DatabaseManager.EXPORT_PAGE_SIZE, loan -> stored[0]++);
+        long accepted = quotes.sum();
+        out.println("Drift:");
+        out.printf("  quotes accepted                 %,12d%n", accepted);
+        out.printf("  distinct loan ids quoted        %,12d%n", quotedLoanIds.size());
+        out.printf("  loans stored                    %,12d%n", stored[0]);
+        // The loan id is the user id, so every repeat quote by the same user collides on the primary key.
+        out.printf("  duplicate loan_id rows rejected %,12d  (expected %,d)%n", writer.getRowsFailed() - failedBefore,
+                accepted - quotedLoanIds.size());
+        out.printf("  stale reads after own quote     %,12d%n", staleReads.sum());
+        out.printf("  customer id != user id          %,12d%n", customerMismatches.sum());
+        out.printf("  errors                          %,12d%s%n", errors.sum(), firstError == null ? "" : "  first: " + firstError);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int users = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        if (DatabaseManager.STORE_KIND.equals("jdbc") && System.getProperty("homeloan.db.url") == null) {
+            System.out.println("Refusing to load the default database: set -Dhomeloan.store=memory, or -Dhomeloan.db.url "
+                    + "to an embedded database");
+            return;
+        }
+        PrintStream out = System.out;
+        try {
+            DatabaseManager.dbManager.createTables();
+            LoadGenerator generator = new LoadGenerator(users);
+            long start = System.nanoTime();
+            generator.register();
+            out.printf("Store: %s, %d users registered in %d ms, concurrency %d for %d s%n", DatabaseManager.STORE_KIND,
+                    users, (System.nanoTime() - start) / 1_000_000, concurrency, seconds);
+            generator.run(concurrency, seconds, out);
+        } finally {
+            DatabaseManager.shutdown();
+        }
+    }
+}
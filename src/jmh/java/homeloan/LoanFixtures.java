@@ -0,0 +1,39 @@
+package homeloan;
+
+import java.util.Random;
+
+// Reproducible loan books for the benchmarks: amounts from 1 lakh to 1 crore, rates from 6.5% in 1/8 steps, 5 to 30
+// year tenures.
+class LoanFixtures {
+    final double[] amounts;
+    final double[] rates;
+    final int[] tenures;
+
+    LoanFixtures(int size, long seed) {
+        Random random = new Random(seed);
+        amounts = new double[size];
+        rates = new double[size];
+        tenures = new int[size];
+        for (int i = 0; i < size; i++) {
+            amounts[i] = 100_000 + random.nextInt(9_900_000);
+            rates[i] = 6.5 + random.nextInt(40) * 0.125;
+            tenures[i] = 5 + random.nextInt(26);
+        }
+    }
+
+    LoanDetails loan(int index) {
+        LoanDetails loan = new LoanDetails(index + 1, amounts[index], rates[index], tenures[index]);
+        loan.monthlyPayment = amounts[index] * AnnuityFactorCache.computeFactor(rates[index], tenures[index]);
+        loan.totalInterest = loan.monthlyPayment * tenures[index] * 12 - amounts[index];
+        return loan;
+    }
+
+    static int[] lookups(int size, int bound, long seed) {
+        Random random = new Random(seed);
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = 1 + random.nextInt(bound);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,68 @@
+package homeloan;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The in-memory loan history holding 1k to 10M loans. Each iteration starts from a freshly filled store, and addLoan
+// keeps appending to it, so the array doublings it runs into show up in the upper percentiles.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Thread)
+public class LoanManagementBenchmark {
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private LoanDetails[] loans;
+    private int[] lookups;
+    private LoanManagement store;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUpLoans() {
+        LoanFixtures fixtures = new LoanFixtures(size, 7);
+        loans = new LoanDetails[size];
+        for (int i = 0; i < size; i++) {
+            loans[i] = fixtures.loan(i);
+        }
+        lookups = LoanFixtures.lookups(size, size, 11);
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpStore() {
+        store = new LoanManagement();
+        for (LoanDetails loan : loans) {
+            store.addLoan(loan);
+        }
+        next = 0;
+    }
+
+    private int nextIndex() {
+        int i = next;
+        next = i + 1 == size ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public void addLoan() {
+        store.addLoan(loans[nextIndex()]);
+    }
+
+    @Benchmark
+    public LoanDetails getLoanById() {
+        return store.getLoanById(lookups[nextIndex()]);
+    }
+}
@@ -0,0 +1,55 @@
+package homeloan;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Quotes and schedule fills for every LoanProducts kind. Daily reducing fills 365 rows a year, so its 30-year
+// schedule is the 10k-row case.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductBenchmark {
+    @Param({"standard", "step-up:5", "floating:12:8.75,9.0,9.25,8.5", "daily-reducing"})
+    public String product;
+
+    @Param({"20", "30"})
+    public int tenure;
+
+    private LoanProduct loanProduct;
+    private final AmortizationSchedule reused = new AmortizationSchedule();
+    private LoanFixtures loans;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        loanProduct = LoanProducts.parse(product);
+        loans = new LoanFixtures(100_000, 23);
+    }
+
+    @Benchmark
+    public double quote() {
+        int i = next;
+        next = i + 1 == loans.amounts.length ? 0 : i + 1;
+        return loanProduct.monthlyPayment(loans.amounts[i], loans.rates[i], loans.tenures[i])
+                + loanProduct.totalInterest(loans.amounts[i], loans.rates[i], loans.tenures[i]);
+    }
+
+    @Benchmark
+    public double fill() {
+        return loanProduct.fill(2_500_000, 8.5, tenure, reused).balance[tenure * loanProduct.periodsPerYear() - 1];
+    }
+}
@@ -0,0 +1,68 @@
+package homeloan;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Registering a customer should cost the same however many customers already exist, which the old full-table id
+// check did not. Runs against in-memory H2 in MySQL mode.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {
+        "-Dhomeloan.store=jdbc",
+        "-Dhomeloan.db.driver=org.h2.Driver",
+        "-Dhomeloan.db.url=jdbc:h2:mem:bench;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1",
+        "-Dhomeloan.warmup=false"})
+@State(Scope.Benchmark)
+public class RegistrationBenchmark {
+    static final int BATCH_ROWS = 10_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int customers;
+
+    private final DatabaseManager db = new DatabaseManager();
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, ClassNotFoundException {
+        db.createTables();
+        LoanStore store = DatabaseManager.store();
+        store.clear();
+        List<BorrowerDetails> batch = new ArrayList<>(BATCH_ROWS);
+        for (int i = 0; i < customers; i++) {
+            batch.add(new BorrowerDetails(0, "customer" + i, "c" + i + "@example.com", "9000000000"));
+            if (batch.size() == BATCH_ROWS || i == customers - 1) {
+                store.insertBatch(Collections.emptyList(), batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DatabaseManager.shutdown();
+    }
+
+    @Benchmark
+    public int insertBorrower() throws SQLException, ClassNotFoundException {
+        int i = next++;
+        return db.insertBorrower("bench" + i, "bench" + i + "@example.com", "9000000000");
+    }
+}
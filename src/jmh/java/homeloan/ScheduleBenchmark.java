@@ -0,0 +1,46 @@
+package homeloan;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Amortization schedules for a 25 lakh loan at 8.5%: the formatted rows the menu prints against the primitive
+// schedule that is reused between calls.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScheduleBenchmark {
+    @Param({"5", "10", "20", "30"})
+    public int tenure;
+
+    private final HomeLoanCalculator calculator = new HomeLoanCalculator();
+    private final FixedPointLoanCalculator fixedPoint = new FixedPointLoanCalculator();
+    private final AmortizationSchedule reused = new AmortizationSchedule();
+
+    @Benchmark
+    public List<String> generateAmortizationSchedule() {
+        return calculator.generateAmortizationSchedule(2_500_000, 8.5, tenure);
+    }
+
+    @Benchmark
+    public double fillAmortizationSchedule() {
+        return calculator.fillAmortizationSchedule(2_500_000, 8.5, tenure, reused).balance[tenure * 12 - 1];
+    }
+
+    @Benchmark
+    public double fixedPointFillAmortizationSchedule() {
+        return fixedPoint.fillAmortizationSchedule(2_500_000, 8.5, tenure, reused).balance[tenure * 12 - 1];
+    }
+}
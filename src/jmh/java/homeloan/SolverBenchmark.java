@@ -0,0 +1,81 @@
+package homeloan;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// The what-if grid (20 rates x 30 tenures x 5 amounts) and the inverse solvers, for the floating-point and the
+// fixed-point calculator.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolverBenchmark {
+    static final double[] GRID_RATES = IntStream.range(0, 20).mapToDouble(r -> 6.5 + r * 0.25).toArray();
+    static final int[] GRID_TENURES = IntStream.rangeClosed(1, 30).toArray();
+    static final double[] GRID_AMOUNTS = {1_000_000, 2_500_000, 5_000_000, 7_500_000, 10_000_000};
+
+    private final HomeLoanCalculator calculator = new HomeLoanCalculator();
+    private final FixedPointLoanCalculator fixedPoint = new FixedPointLoanCalculator();
+    private int next;
+
+    // Installments from 21,000 to 21,999 for 25 lakh over 20 years, so the solvers do not see one input only.
+    private double nextPayment() {
+        int i = next;
+        next = i + 1 == 1000 ? 0 : i + 1;
+        return 21_000 + i;
+    }
+
+    @Benchmark
+    public double gridCellByCell() {
+        double total = 0;
+        for (double rate : GRID_RATES) {
+            for (int tenure : GRID_TENURES) {
+                for (double amount : GRID_AMOUNTS) {
+                    total += amount * AnnuityFactorCache.computeFactor(rate, tenure);
+                }
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public EmiGrid gridOnePass() {
+        return calculator.calculateGrid(GRID_AMOUNTS, GRID_RATES, GRID_TENURES);
+    }
+
+    @Benchmark
+    public EmiGrid fixedPointGrid() {
+        return fixedPoint.calculateGrid(GRID_AMOUNTS, GRID_RATES, GRID_TENURES);
+    }
+
+    @Benchmark
+    public double rateForPayment() {
+        return calculator.rateForPayment(2_500_000, nextPayment(), 20);
+    }
+
+    @Benchmark
+    public double tenureMonthsForPayment() {
+        return calculator.tenureMonthsForPayment(2_500_000, 8.5, nextPayment());
+    }
+
+    @Benchmark
+    public double fixedPointRateForPayment() {
+        return fixedPoint.rateForPayment(2_500_000, nextPayment(), 20);
+    }
+
+    @Benchmark
+    public double fixedPointMaxAffordableLoan() {
+        return fixedPoint.maxAffordableLoan(nextPayment(), 8.5, 20);
+    }
+}
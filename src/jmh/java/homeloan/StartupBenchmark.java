@@ -0,0 +1,101 @@
+package homeloan;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Time to first quote in a fresh JVM, which JMH cannot measure from inside one: each run spawns `java ... --quote` on
+// the embedded store and records how long the first line of output takes. Every run count is measured twice, plain
+// and from an AppCDS archive recorded by a --warmup-only training run. CDS only archives classes loaded from jars, so
+// the children use -Dstartup.classpath (the packaged jar under mvn -Pjmh) and fall back to this JVM's class path.
+// homeloan.* properties of this JVM are passed on to the children.
+// Usage: StartupBenchmark [runs,runs,...]
+public class StartupBenchmark {
+    static final int[] DEFAULT_RUNS = {10};
+    static final String[] QUOTE_ARGS = {"--quote", "2500000", "8.5", "20"};
+    static final String CLASS_PATH = System.getProperty("startup.classpath", System.getProperty("java.class.path"));
+
+    public static void main(String[] args) throws Exception {
+        int[] runCounts = args.length > 0 ? Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray() : DEFAULT_RUNS;
+        Path archive = Files.createTempFile("homeloan", ".jsa");
+        // Only the unique name is wanted; -XX:ArchiveClassesAtExit creates the file itself.
+        Files.delete(archive);
+        try {
+            Process training = start(Collections.singletonList("-XX:ArchiveClassesAtExit=" + archive), "--warmup-only");
+            String trainingOutput = readAll(training);
+            training.waitFor();
+            if (!Files.exists(archive)) {
+                System.err.println("AppCDS runs skipped, no archive was written:" + System.lineSeparator() + trainingOutput);
+            }
+            System.out.printf("%-45s %10s %10s %10s%n", "Benchmark", "runs", "p50 ms", "p99 ms");
+            for (int runs : runCounts) {
+                measure("startup to first quote", runs, Collections.emptyList());
+                if (Files.exists(archive)) {
+                    measure("startup to first quote, AppCDS", runs, Collections.singletonList("-XX:SharedArchiveFile=" + archive));
+                }
+            }
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    static void measure(String name, int runs, List<String> jvmOptions) throws Exception {
+        // One untimed run brings the class path and the JDK's own files into the page cache.
+        firstLineNanos(jvmOptions);
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int run = 0; run < runs; run++) {
+            histogram.record(firstLineNanos(jvmOptions));
+        }
+        System.out.printf("%-45s %,10d %,10.1f %,10.1f%n", name, runs, histogram.percentile(50) / 1e6, histogram.percentile(99) / 1e6);
+    }
+
+    private static long firstLineNanos(List<String> jvmOptions) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = start(jvmOptions, QUOTE_ARGS);
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line = out.readLine();
+            long elapsed = System.nanoTime() - start;
+            StringBuilder output = new StringBuilder(line == null ? "" : line);
+            for (String next; (next = out.readLine()) != null; ) {
+                output.append(System.lineSeparator()).append(next);
+            }
+            if (process.waitFor() != 0 || line == null || !line.startsWith("Monthly payment")) {
+                throw new IllegalStateException("Quote run failed with exit code " + process.exitValue() + ":"
+                        + System.lineSeparator() + output);
+            }
+            return elapsed;
+        }
+    }
+
+    static Process start(List<String> jvmOptions, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-Dhomeloan.store=memory");
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("homeloan.")) {
+                command.add("-D" + key + "=" + System.getProperty(key));
+            }
+        }
+        command.add("-cp");
+        command.add(CLASS_PATH);
+        command.add(HomeLoanInterestCalculationSystem.class.getName());
+        command.addAll(Arrays.asList(args));
+        return new ProcessBuilder(command).redirectErrorStream(true).start();
+    }
+
+    private static String readAll(Process process) throws IOException {
+        try (InputStream in = process.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
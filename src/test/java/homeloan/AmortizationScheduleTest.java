@@ -0,0 +1,66 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class AmortizationScheduleTest {
+    final HomeLoanCalculator calculator = new HomeLoanCalculator();
+
+    @Test
+    void scheduleRepaysThePrincipal() {
+        AmortizationSchedule schedule = calculator.fillAmortizationSchedule(2_500_000, 8.5, 20, new AmortizationSchedule());
+        assertEquals(240, schedule.size());
+        assertEquals(calculator.calculateMonthlyPayment(2_500_000, 8.5, 20), schedule.monthlyPayment);
+        double principal = 0;
+        double interest = 0;
+        for (int i = 0; i < schedule.size(); i++) {
+            assertEquals(schedule.monthlyPayment, schedule.principal[i] + schedule.interest[i], 1e-9);
+            principal += schedule.principal[i];
+            interest += schedule.interest[i];
+        }
+        assertEquals(2_500_000, principal, 1e-4);
+        assertEquals(0, schedule.balance[239], 1e-4);
+        assertEquals(calculator.calculateTotalInterest(2_500_000, 8.5, 20), interest, 1e-4);
+    }
+
+    @Test
+    void refillingReusesTheColumns() {
+        AmortizationSchedule schedule = new AmortizationSchedule(360);
+        double[] balance = schedule.balance;
+        calculator.fillAmortizationSchedule(3_000_000, 9, 30, schedule);
+        calculator.fillAmortizationSchedule(1_000_000, 7.5, 10, schedule);
+        assertSame(balance, schedule.balance);
+        assertEquals(120, schedule.size());
+        assertEquals(0, schedule.balance[119], 1e-6);
+
+        calculator.fillAmortizationSchedule(1_000_000, 7.5, 40, schedule);
+        assertEquals(480, schedule.size());
+        assertEquals(0, schedule.balance[479], 1e-6);
+    }
+
+    @Test
+    void textRowsMatchTheColumns() {
+        AmortizationSchedule schedule = new AmortizationSchedule();
+        List<String> rows = calculator.generateAmortizationSchedule(100_000, 12, 1);
+        assertEquals(12, rows.size());
+        calculator.fillAmortizationSchedule(100_000, 12, 1, schedule);
+        assertEquals(String.format("Month 1: Principal: %.2f, Interest: %.2f, Balance: %.2f",
+                schedule.principal[0], schedule.interest[0], schedule.balance[0]), rows.get(0));
+        assertEquals(rows.get(11), schedule.formatRow(11));
+        assertThrows(IndexOutOfBoundsException.class, () -> rows.get(12));
+    }
+
+    @Test
+    void interestFreeLoanRepaysInEqualParts() {
+        AmortizationSchedule schedule = calculator.fillAmortizationSchedule(120_000, 0, 1, new AmortizationSchedule());
+        for (int i = 0; i < 12; i++) {
+            assertEquals(10_000, schedule.principal[i], 1e-9);
+            assertEquals(0, schedule.interest[i]);
+        }
+        assertEquals(0, schedule.balance[11], 1e-9);
+    }
+}
@@ -0,0 +1,66 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class AnnuityFactorCacheTest {
+    @Test
+    void factorIsTheClosedFormAnnuity() {
+        double r = 8.5 / 12 / 100;
+        double expected = r * Math.pow(1 + r, 240) / (Math.pow(1 + r, 240) - 1);
+        assertEquals(expected, AnnuityFactorCache.computeFactor(8.5, 20), expected * 1e-12);
+        assertEquals(1.0 / 60, AnnuityFactorCache.computeFactor(0, 5));
+    }
+
+    @Test
+    void repeatedLookupsHitTheCache() {
+        AnnuityFactorCache cache = new AnnuityFactorCache(16);
+        double first = cache.factor(8.5, 20);
+        assertEquals(first, cache.factor(8.5, 20));
+        assertEquals(first, cache.factor(8.5, 20));
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictedEntriesAreRecomputedCorrectly() {
+        AnnuityFactorCache cache = new AnnuityFactorCache(4);
+        for (int round = 0; round < 3; round++) {
+            for (int tenure = 1; tenure <= 40; tenure++) {
+                double rate = 6 + tenure * 0.25;
+                assertEquals(AnnuityFactorCache.computeFactor(rate, tenure), cache.factor(rate, tenure));
+            }
+        }
+        assertTrue(cache.size() <= 4);
+        assertEquals(120, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    void concurrentLookupsAgreeWithTheClosedForm() {
+        AnnuityFactorCache cache = new AnnuityFactorCache(64);
+        IntStream.range(0, 200_000).parallel().forEach(i -> {
+            double rate = 5 + (i % 97) * 0.05;
+            int tenure = 1 + i % 30;
+            if (cache.factor(rate, tenure) != AnnuityFactorCache.computeFactor(rate, tenure)) {
+                throw new AssertionError("Wrong factor for " + rate + "% over " + tenure + " years");
+            }
+        });
+        assertEquals(200_000, cache.getHits() + cache.getMisses());
+    }
+
+    @Test
+    void calculatorQuotesThroughItsCache() {
+        AnnuityFactorCache cache = new AnnuityFactorCache(16);
+        HomeLoanCalculator calculator = new HomeLoanCalculator(cache);
+        LoanDetails loan = new LoanDetails(1, 2_500_000, 8.5, 20);
+        calculator.quote(loan, new AmortizationSchedule());
+        assertEquals(1, cache.getMisses() + cache.getHits());
+        assertEquals(2_500_000 * AnnuityFactorCache.computeFactor(8.5, 20), loan.monthlyPayment);
+    }
+}
@@ -0,0 +1,57 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.Test;
+
+class BatchQuoteResultTest {
+    static final int SIZE = BatchQuoteResult.CHUNK_SIZE * 3 + 17;
+
+    static void assertMatchesSingleQuotes(LoanCalculator calculator) {
+        double[] amounts = new double[SIZE];
+        double[] rates = new double[SIZE];
+        int[] tenures = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            amounts[i] = 100_000 + i * 250;
+            // Runs of equal rate and tenure, then a change, as a sorted repricing file would have.
+            rates[i] = 6 + (i / 7 % 40) * 0.125;
+            tenures[i] = 5 + i / 11 % 26;
+        }
+        BatchQuoteResult result = calculator.calculateBatch(amounts, rates, tenures);
+        assertEquals(SIZE, result.size());
+        for (int i = 0; i < SIZE; i++) {
+            double payment = calculator.calculateMonthlyPayment(amounts[i], rates[i], tenures[i]);
+            assertEquals(payment, result.monthlyPayments[i], payment * 1e-12);
+            assertEquals(calculator.calculateTotalInterest(amounts[i], rates[i], tenures[i]), result.totalInterests[i], 1e-6);
+        }
+    }
+
+    @Test
+    void batchMatchesSingleQuotes() {
+        assertMatchesSingleQuotes(new HomeLoanCalculator());
+        assertMatchesSingleQuotes(new FixedPointLoanCalculator());
+        assertMatchesSingleQuotes(new ProductLoanCalculator(LoanProducts.parse("step-up:5")));
+    }
+
+    @Test
+    void chunksCoverEveryIndexOnce() {
+        AtomicIntegerArray visits = new AtomicIntegerArray(SIZE);
+        BatchQuoteResult.forEachChunk(SIZE, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                visits.incrementAndGet(i);
+            }
+        });
+        for (int i = 0; i < SIZE; i++) {
+            assertEquals(1, visits.get(i), "index " + i);
+        }
+    }
+
+    @Test
+    void mismatchedArraysAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new HomeLoanCalculator().calculateBatch(new double[2], new double[2], new int[1]));
+        assertEquals(0, new HomeLoanCalculator().calculateBatch(new double[0], new double[0], new int[0]).size());
+    }
+}
@@ -0,0 +1,137 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+    static final String URL = "jdbc:h2:mem:pool;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    ConnectionPool pool;
+
+    @BeforeEach
+    void open() throws SQLException {
+        pool = new ConnectionPool(URL, "", "", 2, 60_000, 30_000, 2, 200);
+        try (Connection conn = pool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS t (id INT PRIMARY KEY)");
+            stmt.execute("DELETE FROM t");
+        }
+    }
+
+    @AfterEach
+    void close() {
+        pool.close();
+    }
+
+    static int count(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM t");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void connectionsAndStatementsAreReused() throws SQLException {
+        PreparedStatement first;
+        try (Connection conn = pool.getConnection()) {
+            first = conn.prepareStatement("SELECT COUNT(*) FROM t");
+            first.close();
+            assertSame(first, conn.prepareStatement("SELECT COUNT(*) FROM t"));
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertSame(first, conn.prepareStatement("SELECT COUNT(*) FROM t"));
+        }
+        assertEquals(1, pool.getCreatedCount());
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+    }
+
+    @Test
+    void statementStillOpenOnTheLeaseIsNotShared() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement open = conn.prepareStatement("SELECT COUNT(*) FROM t");
+             PreparedStatement second = conn.prepareStatement("SELECT COUNT(*) FROM t")) {
+            assertNotSame(open, second);
+        }
+    }
+
+    @Test
+    void exhaustedPoolTimesOut() throws SQLException {
+        try (Connection a = pool.getConnection(); Connection b = pool.getConnection()) {
+            assertEquals(2, pool.getActiveCount());
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+        }
+        try (Connection c = pool.getConnection()) {
+            assertFalse(c.isClosed());
+        }
+    }
+
+    @Test
+    void uncommittedWorkIsRolledBackOnRelease() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO t (id) VALUES (1)")) {
+                pstmt.executeUpdate();
+            }
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.getAutoCommit());
+            assertEquals(0, count(conn));
+        }
+    }
+
+    @Test
+    void returnedConnectionCannotBeUsed() throws SQLException {
+        Connection conn = pool.getConnection();
+        conn.close();
+        assertTrue(conn.isClosed());
+        conn.close();
+        assertThrows(SQLException.class, conn::createStatement);
+        assertEquals(0, pool.getActiveCount());
+    }
+
+    @Test
+    void prewarmAndCloseIdleManageIdleConnections() throws SQLException {
+        pool.closeIdle();
+        assertEquals(2, pool.prewarm(5));
+        assertEquals(2, pool.getIdleCount());
+        assertEquals(2, pool.closeIdle());
+        assertEquals(0, pool.getIdleCount());
+        try (Connection conn = pool.getConnection()) {
+            assertEquals(0, count(conn));
+        }
+    }
+
+    @Test
+    void idleConnectionsExpire() throws Exception {
+        try (ConnectionPool shortLived = new ConnectionPool(URL, "", "", 2, 0, 30_000, 2, 200)) {
+            shortLived.getConnection().close();
+            assertEquals(1, shortLived.getIdleCount());
+            Thread.sleep(5);
+            shortLived.evictIdle();
+            assertEquals(0, shortLived.getIdleCount());
+            assertEquals(1, shortLived.getEvictedCount());
+        }
+    }
+
+    @Test
+    void closedPoolRefusesConnections() {
+        pool.close();
+        assertThrows(SQLException.class, pool::getConnection);
+    }
+}
@@ -0,0 +1,102 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class EmiGridTest {
+    static final double[] AMOUNTS = {500_000, 2_500_000, 10_000_000};
+    static final double[] RATES = {0, 6.75, 8.5, 12};
+    static final int[] TENURES = {30, 5, 20, 1};
+
+    @Test
+    void everyCellUsesTheSharedAnnuityFactor() {
+        EmiGrid grid = EmiGrid.compute(AMOUNTS, RATES, TENURES);
+        for (int r = 0; r < RATES.length; r++) {
+            for (int t = 0; t < TENURES.length; t++) {
+                double factor = AnnuityFactorCache.computeFactor(RATES[r], TENURES[t]);
+                assertEquals(factor, grid.factor(r, t), factor * 1e-12);
+                for (int a = 0; a < AMOUNTS.length; a++) {
+                    double payment = AMOUNTS[a] * factor;
+                    assertEquals(payment, grid.monthlyPayment(r, t, a), payment * 1e-12);
+                    assertEquals(payment * TENURES[t] * 12 - AMOUNTS[a], grid.totalInterest(r, t, a), 1e-4);
+                }
+            }
+        }
+    }
+
+    @Test
+    void tabulatedGridMatchesTheComputedOne() {
+        EmiGrid computed = EmiGrid.compute(AMOUNTS, RATES, TENURES);
+        EmiGrid tabulated = EmiGrid.tabulate(AMOUNTS, RATES, TENURES, new ProductLoanCalculator(LoanProducts.STANDARD));
+        for (int r = 0; r < RATES.length; r++) {
+            for (int t = 0; t < TENURES.length; t++) {
+                for (int a = 0; a < AMOUNTS.length; a++) {
+                    assertEquals(computed.monthlyPayment(r, t, a), tabulated.monthlyPayment(r, t, a), 1e-6);
+                }
+            }
+        }
+    }
+
+    @Test
+    void scheduleInstallmentIsTheSameAnnuity() {
+        double emi = new HomeLoanCalculator().calculateMonthlyPayment(2_500_000, 8.5, 20);
+        IncrementalSchedule.Cursor cursor = new IncrementalSchedule(2_500_000, 8.5, 20).cursor();
+        cursor.next();
+        assertEquals(emi, cursor.payment(), 1e-9);
+        assertEquals(emi, LoanProducts.STANDARD.monthlyPayment(2_500_000, 8.5, 20), 1e-9);
+    }
+
+    @Test
+    void solversInvertTheGrid() {
+        double emi = AnnuityFactorCache.computeFactor(8.5, 20) * 2_500_000;
+        assertEquals(240, EmiGrid.tenureMonthsForPayment(2_500_000, 8.5, emi));
+        assertEquals(8.5, EmiGrid.rateForPayment(2_500_000, emi, 20), 1e-9);
+        assertEquals(0, EmiGrid.rateForPayment(1_200_000, 10_000, 10));
+        assertThrows(IllegalArgumentException.class, () -> EmiGrid.tenureMonthsForPayment(2_500_000, 8.5, 1_000));
+        assertThrows(IllegalArgumentException.class, () -> EmiGrid.compute(AMOUNTS, RATES, new int[]{0}));
+    }
+
+    @Test
+    void solversRoundTripAcrossTheGrid() {
+        LoanCalculator calculator = new HomeLoanCalculator();
+        for (double rate = 0.5; rate <= 18; rate += 0.75) {
+            for (int tenure = 1; tenure <= 40; tenure += 3) {
+                double emi = calculator.calculateMonthlyPayment(2_500_000, rate, tenure);
+                assertEquals(rate, calculator.rateForPayment(2_500_000, emi, tenure), 1e-7);
+                assertEquals(tenure * 12, calculator.tenureMonthsForPayment(2_500_000, rate, emi));
+                assertEquals(2_500_000, calculator.maxAffordableLoan(emi, rate, tenure), 1e-4);
+            }
+        }
+    }
+
+    @Test
+    void longerTenureNeedsLessThanAFullMonthMore() {
+        double emi = AnnuityFactorCache.computeFactor(9, 15) * 1_000_000;
+        assertEquals(181, EmiGrid.tenureMonthsForPayment(1_000_000, 9, emi - 1));
+        assertEquals(100, EmiGrid.tenureMonthsForPayment(1_000_000, 0, 10_000));
+        assertEquals(101, EmiGrid.tenureMonthsForPayment(1_000_000, 0, 9_999));
+    }
+
+    @Test
+    void productSolversWorkInWholeYearsAndFirstInstallments() {
+        ProductLoanCalculator stepUp = new ProductLoanCalculator(LoanProducts.parse("step-up:5"));
+        double first = stepUp.calculateMonthlyPayment(2_500_000, 8.5, 20);
+        assertEquals(240, stepUp.tenureMonthsForPayment(2_500_000, 8.5, first));
+        assertEquals(252, stepUp.tenureMonthsForPayment(2_500_000, 8.5, first - 1));
+        assertEquals(8.5, stepUp.rateForPayment(2_500_000, first, 20), 1e-6);
+        assertEquals(2_500_000, stepUp.maxAffordableLoan(first, 8.5, 20), 1e-4);
+        EmiGrid grid = stepUp.calculateGrid(AMOUNTS, RATES, TENURES);
+        assertEquals(first, grid.monthlyPayment(2, 2, 1), 1e-9);
+    }
+
+    @Test
+    void unpayableRequestsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> EmiGrid.rateForPayment(1_200_000, 9_999, 10));
+        assertThrows(IllegalArgumentException.class, () -> EmiGrid.rateForPayment(0, 10_000, 10));
+        assertThrows(IllegalArgumentException.class, () -> EmiGrid.tenureMonthsForPayment(1_000_000, 8, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new ProductLoanCalculator(LoanProducts.STANDARD).tenureMonthsForPayment(1_000_000, 12, 10_000));
+    }
+}
@@ -0,0 +1,77 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class FixedPointLoanCalculatorTest {
+    final FixedPointLoanCalculator calculator = new FixedPointLoanCalculator();
+
+    @Test
+    void scheduleSettlesToTheExactTotalInterest() {
+        AmortizationSchedule schedule = calculator.fillAmortizationSchedule(2_500_000, 8.5, 20, new AmortizationSchedule(240));
+        long interest = 0;
+        for (int i = 0; i < schedule.months; i++) {
+            interest += Math.round(schedule.interest[i] * 100);
+        }
+        assertEquals(0, schedule.balance[schedule.months - 1]);
+        assertEquals(Math.round(calculator.calculateTotalInterest(2_500_000, 8.5, 20) * 100), interest);
+    }
+
+    @Test
+    void maxAffordableLoanIsTheLastPaisaThatFits() {
+        double[][] cases = {{21_696, 8.5, 20}, {1, 12, 30}, {500_000, 0, 5}, {10_000, 100, 1}};
+        for (double[] c : cases) {
+            long installment = FixedPointLoanCalculator.toPaisa(c[0]);
+            long rate = FixedPointLoanCalculator.toScaledRate(c[1]);
+            int months = (int) c[2] * 12;
+            long principal = FixedPointLoanCalculator.toPaisa(calculator.maxAffordableLoan(c[0], c[1], (int) c[2]));
+            assertTrue(FixedPointLoanCalculator.installmentPaisa(principal, rate, months) <= installment);
+            assertTrue(FixedPointLoanCalculator.installmentPaisa(principal + 1, rate, months) > installment);
+        }
+    }
+
+    @Test
+    void maxAffordableLoanIsCappedAtTheLargestAmount() {
+        assertEquals(QuoteService.MAX_LOAN_AMOUNT, calculator.maxAffordableLoan(9_000_000_000.0, 1, 1));
+    }
+
+    @Test
+    void rateForPaymentIsTheLastRateUnitThatFits() {
+        double[][] cases = {{2_500_000, 21_696, 20}, {1_000_000, 9_000, 30}, {100_000, 90_000, 1}};
+        for (double[] c : cases) {
+            long principal = FixedPointLoanCalculator.toPaisa(c[0]);
+            long installment = FixedPointLoanCalculator.toPaisa(c[1]);
+            int months = (int) c[2] * 12;
+            long rate = FixedPointLoanCalculator.toScaledRate(calculator.rateForPayment(c[0], c[1], (int) c[2]));
+            assertTrue(FixedPointLoanCalculator.installmentPaisa(principal, rate, months) <= installment);
+            assertTrue(rate == 100 * FixedPointLoanCalculator.RATE_SCALE
+                    || FixedPointLoanCalculator.installmentPaisa(principal, rate + 1, months) > installment);
+        }
+    }
+
+    @Test
+    void paymentBelowTheInterestFreeInstallmentIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> calculator.rateForPayment(1_200_000, 1_000, 10));
+    }
+
+    @Test
+    void largestFittingFindsTheBoundaryFromAnyEstimate() {
+        long boundary = 123_456_789;
+        for (long estimate : new long[]{-5, 0, 1, boundary - 1, boundary, boundary + 1, 1L << 40, Long.MAX_VALUE}) {
+            assertEquals(boundary, FixedPointLoanCalculator.largestFitting(estimate, 1L << 40, v -> v <= boundary));
+        }
+        assertEquals(0, FixedPointLoanCalculator.largestFitting(50, 100, v -> false));
+        assertEquals(100, FixedPointLoanCalculator.largestFitting(50, 100, v -> true));
+    }
+
+    @Test
+    void amountLimitMatchesTheServiceLimit() {
+        double limit = QuoteService.MAX_LOAN_AMOUNT;
+        assertEquals(limit / 1200, calculator.calculateMonthlyPayment(limit, 0, 100), 0.01);
+        assertThrows(IllegalArgumentException.class, () -> calculator.calculateMonthlyPayment(limit + 1, 8.5, 20));
+        assertThrows(IllegalArgumentException.class, () -> QuoteService.validate(limit + 1, 8.5, 20));
+    }
+}
@@ -0,0 +1,8 @@
+package homeloan;
+
+class InMemoryLoanStoreTest extends LoanStoreContract {
+    @Override
+    LoanStore createStore() {
+        return new InMemoryLoanStore();
+    }
+}
@@ -0,0 +1,94 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalScheduleTest {
+    static final double TOLERANCE = 1e-6;
+
+    static IncrementalSchedule paidOffInMonth33() {
+        return new IncrementalSchedule(1_000_000, 8.5, 20).prepay(10, 800_000, IncrementalSchedule.Mode.REDUCE_TENURE);
+    }
+
+    @Test
+    void withoutEventsMatchesTheCalculator() {
+        IncrementalSchedule schedule = new IncrementalSchedule(2_500_000, 8.5, 20);
+        HomeLoanCalculator calculator = new HomeLoanCalculator();
+        assertEquals(240, schedule.getTenureMonths());
+        assertEquals(calculator.calculateTotalInterest(2_500_000, 8.5, 20), schedule.getTotalInterest(), 0.01);
+    }
+
+    @Test
+    void prepaymentShortensTheTenure() {
+        assertEquals(33, paidOffInMonth33().getTenureMonths());
+    }
+
+    @Test
+    void prepaymentThatKeepsTheTenureLowersTheInstallment() {
+        IncrementalSchedule schedule = new IncrementalSchedule(1_000_000, 8.5, 20)
+                .prepay(12, 200_000, IncrementalSchedule.Mode.REDUCE_EMI);
+        IncrementalSchedule.Cursor cursor = schedule.cursor();
+        double before = 0;
+        double after = 0;
+        double balance = 0;
+        while (cursor.next()) {
+            if (cursor.month() == 11) {
+                before = cursor.payment();
+            } else if (cursor.month() == 12) {
+                after = cursor.payment();
+            }
+            balance = cursor.balance();
+        }
+        assertEquals(240, schedule.getTenureMonths());
+        assertTrue(after < before, "the installment drops after the prepayment");
+        assertEquals(0, balance, TOLERANCE);
+    }
+
+    // Nothing is computed until it is read, and only the months from the event onwards are recomputed.
+    @Test
+    void lateEventRecomputesOnlyTheTail() {
+        IncrementalSchedule schedule = new IncrementalSchedule(1_000_000, 8.5, 20);
+        assertEquals(240, schedule.getTenureMonths());
+        long initial = schedule.getMonthsRecomputed();
+        schedule.resetRate(230, 9.0, IncrementalSchedule.Mode.REDUCE_EMI);
+        assertEquals(240, schedule.getTenureMonths());
+        assertEquals(11, schedule.getMonthsRecomputed() - initial);
+    }
+
+    @Test
+    void eventAfterPayoffIsRejectedAndChangesNothing() {
+        IncrementalSchedule schedule = paidOffInMonth33();
+        double totalInterest = schedule.getTotalInterest();
+        assertThrows(IllegalArgumentException.class, () -> schedule.resetRate(200, 9.0, IncrementalSchedule.Mode.REDUCE_EMI));
+        assertThrows(IllegalArgumentException.class, () -> schedule.resetRate(34, 9.0, IncrementalSchedule.Mode.REDUCE_EMI));
+        assertEquals(33, schedule.getTenureMonths());
+        assertEquals(totalInterest, schedule.getTotalInterest());
+    }
+
+    @Test
+    void eventOutOfRangeIsRejected() {
+        IncrementalSchedule schedule = new IncrementalSchedule(1_000_000, 8.5, 20);
+        assertThrows(IllegalArgumentException.class, () -> schedule.resetRate(1000, 9.0, IncrementalSchedule.Mode.REDUCE_EMI));
+        assertThrows(IllegalArgumentException.class, () -> schedule.prepay(241, 1000, IncrementalSchedule.Mode.REDUCE_TENURE));
+        assertThrows(IllegalArgumentException.class, () -> schedule.prepay(0, 1000, IncrementalSchedule.Mode.REDUCE_TENURE));
+        assertEquals(240, schedule.getTenureMonths());
+    }
+
+    @Test
+    void rateResetBeforePayoffStillEndsAtZero() {
+        IncrementalSchedule schedule = paidOffInMonth33().resetRate(20, 9.0, IncrementalSchedule.Mode.REDUCE_TENURE);
+        IncrementalSchedule.Cursor cursor = schedule.cursor();
+        double lastBalance = -1;
+        int months = 0;
+        while (cursor.next()) {
+            lastBalance = cursor.balance();
+            months++;
+        }
+        assertEquals(schedule.getTenureMonths(), months);
+        assertTrue(months < 240);
+        assertEquals(0, lastBalance);
+    }
+}
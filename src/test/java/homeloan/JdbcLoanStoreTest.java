@@ -0,0 +1,40 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import org.junit.jupiter.api.Test;
+
+// Runs the store contract against H2 in MySQL mode, the embedded stand-in for the production database.
+class JdbcLoanStoreTest extends LoanStoreContract {
+    static final String URL = "jdbc:h2:mem:store;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+
+    @Override
+    LoanStore createStore() {
+        return new JdbcLoanStore(() -> DriverManager.getConnection(URL));
+    }
+
+    // A version 3 database still has the UNIQUE constraint on User.password that version 4 drops.
+    @Test
+    void migrationDropsTheUniquePasswordConstraint() throws Exception {
+        String url = "jdbc:h2:mem:migration;MODE=MySQL;NON_KEYWORDS=USER;DB_CLOSE_DELAY=-1";
+        try (Connection conn = DriverManager.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE User (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50) NOT NULL,"
+                    + " password VARCHAR(" + PasswordHasher.STORED_LENGTH + ") NOT NULL UNIQUE)");
+            stmt.execute("CREATE TABLE schema_meta (id INTEGER PRIMARY KEY, version INTEGER NOT NULL)");
+            stmt.execute("INSERT INTO schema_meta (id, version) VALUES (1, 3)");
+        }
+        try (LoanStore migrated = new JdbcLoanStore(() -> DriverManager.getConnection(url));
+             Connection conn = DriverManager.getConnection(url)) {
+            migrated.createSchema();
+            assertEquals(JdbcLoanStore.SCHEMA_VERSION, JdbcLoanStore.schemaVersion(conn));
+            migrated.insertUser("a", "same-hash");
+            migrated.insertUser("b", "same-hash");
+            assertEquals(1, migrated.findUsersByName("b").size());
+            migrated.createSchema();
+        }
+    }
+}
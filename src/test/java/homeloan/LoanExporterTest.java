@@ -0,0 +1,82 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LoanExporterTest {
+    static LoanDetails loan(int loanId, double loanAmount, double interestRate, int tenureYears) {
+        LoanDetails loan = new LoanDetails(loanId, loanAmount, interestRate, tenureYears);
+        new HomeLoanCalculator().quote(loan);
+        return loan;
+    }
+
+    static String export(LoanExporter.Format format, List<LoanDetails> loans) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        LoanExporter exporter = new LoanExporter(Channels.newChannel(out), format);
+        exporter.writeHeader();
+        for (LoanDetails loan : loans) {
+            exporter.accept(loan);
+        }
+        exporter.flush();
+        assertEquals(loans.size(), exporter.getRows());
+        return out.toString(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void csvRowsArePlainDecimalsAtColumnScale() throws Exception {
+        LoanDetails loan = new LoanDetails(7, 25_000_000, 8.5, 20);
+        loan.monthlyPayment = 216_955.5049;
+        loan.totalInterest = 27_069_321.176;
+        assertEquals("loan_id,loan_amount,interest_rate,tenure_years,monthly_payment,total_interest\n"
+                + "7,25000000.00,8.5000,20,216955.50,27069321.18\n", export(LoanExporter.Format.CSV, List.of(loan)));
+    }
+
+    @Test
+    void jsonLinesWriteNonFiniteValuesAsNull() throws Exception {
+        LoanDetails loan = new LoanDetails(3, 100_000, 0, 1);
+        loan.monthlyPayment = Double.NaN;
+        loan.totalInterest = Double.POSITIVE_INFINITY;
+        assertEquals("{\"loan_id\":3,\"loan_amount\":100000.00,\"interest_rate\":0.0000,\"tenure_years\":1,"
+                + "\"monthly_payment\":null,\"total_interest\":null}\n", export(LoanExporter.Format.JSON, List.of(loan)));
+    }
+
+    @Test
+    void exportLargerThanTheBufferKeepsEveryRow() throws Exception {
+        List<LoanDetails> loans = new ArrayList<>();
+        for (int id = 1; id <= 5_000; id++) {
+            loans.add(loan(id, 100_000 + id, 8.5, 20));
+        }
+        String[] lines = export(LoanExporter.Format.CSV, loans).split("\n");
+        assertEquals(5_001, lines.length);
+        for (int id = 1; id <= 5_000; id++) {
+            assertEquals(id + "," + (100_000 + id) + ".00,8.5000,20,", lines[id].substring(0, lines[id].indexOf(",20,") + 4));
+        }
+    }
+
+    @Test
+    void storeScanStreamsPageByPageIntoTheExporter() throws Exception {
+        List<LoanDetails> loans = new ArrayList<>();
+        for (int id = 10; id >= 1; id--) {
+            loans.add(loan(id, 100_000 * id, id % 2 == 0 ? 8.5 : 10, 20));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InMemoryLoanStore store = new InMemoryLoanStore()) {
+            store.insertBatch(loans, Collections.emptyList());
+            LoanExporter exporter = new LoanExporter(Channels.newChannel(out), LoanExporter.Format.CSV);
+            store.scanLoans(new LoanQueryFilter().rateBetween(8, 9), 3, exporter);
+            exporter.flush();
+            assertEquals(5, exporter.getRows());
+        }
+        String[] lines = out.toString(StandardCharsets.US_ASCII).split("\n");
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(String.valueOf(2 * (i + 1)), lines[i].substring(0, lines[i].indexOf(',')));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LoanIngestorTest {
+    @TempDir
+    Path dir;
+
+    Path csv(List<String> lines) throws Exception {
+        return Files.write(dir.resolve("applications.csv"), lines, StandardCharsets.UTF_8);
+    }
+
+    List<String> rejects() throws Exception {
+        return Files.readAllLines(dir.resolve("rejects.tsv"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void validRowsAreQuotedAndStoredUnderTheirCustomersIds() throws Exception {
+        InMemoryLoanStore store = new InMemoryLoanStore();
+        IngestReport report = new LoanIngestor(store, new HomeLoanCalculator()).ingest(csv(List.of(
+                "amount,rate,tenure,name,email,phone",
+                "2500000,8.5,20,Asha,asha@example.com,9876543210",
+                "",
+                "100000, 0 ,1,Ravi,ravi@example.com,9876543211")), dir.resolve("rejects.tsv"));
+        assertEquals(2, report.rowsRead);
+        assertEquals(2, report.rowsAccepted);
+        assertEquals(0, report.rowsRejected);
+        assertTrue(rejects().isEmpty());
+        // The scan hands out one reused row, so only the ids are kept.
+        List<Integer> ids = new ArrayList<>();
+        store.scanLoans(new LoanQueryFilter(), 10, loan -> ids.add(loan.loanId));
+        assertEquals(2, ids.size());
+        LoanDetails first = store.findLoan(ids.get(0));
+        assertEquals(new HomeLoanCalculator().calculateMonthlyPayment(2_500_000, 8.5, 20), first.monthlyPayment, 1e-9);
+        assertEquals("Asha", store.findBorrower(ids.get(0)).borrowerName);
+        assertEquals(8_333.33, store.findLoan(ids.get(1)).monthlyPayment, 0.01);
+        assertNotNull(store.findBorrower(ids.get(1)));
+    }
+
+    @Test
+    void badRowsAreRejectedWithTheirLineAndReason() throws Exception {
+        IngestReport report = new LoanIngestor(new InMemoryLoanStore(), new HomeLoanCalculator()).ingest(csv(List.of(
+                "2500000,8.5,20,Asha,asha@example.com,9876543210",
+                "2500000,8.5,20,Asha,asha@example.com",
+                "lots,8.5,20,Asha,asha@example.com,9876543210",
+                "-5,8.5,20,Asha,asha@example.com,9876543210",
+                "2500000,8.5,0,Asha,asha@example.com,9876543210",
+                "2500000,8.5,20,,asha@example.com,9876543210",
+                "2500000,8.5,20,Asha,asha@example.com,98-76")), dir.resolve("rejects.tsv"));
+        assertEquals(7, report.rowsRead);
+        assertEquals(1, report.rowsAccepted);
+        assertEquals(6, report.rowsRejected);
+        List<String> rejects = rejects();
+        assertEquals(List.of(
+                "2\texpected 6 fields, found 5\t2500000,8.5,20,Asha,asha@example.com",
+                "3\tFor input string: \"lots\"\tlots,8.5,20,Asha,asha@example.com,9876543210",
+                "4\tLoan amount must be positive\t-5,8.5,20,Asha,asha@example.com,9876543210",
+                "5\tTenure must be between 1 and 100 years\t2500000,8.5,0,Asha,asha@example.com,9876543210",
+                "6\tname must be 1 to 50 characters\t2500000,8.5,20,,asha@example.com,9876543210",
+                "7\tphone number is not valid\t2500000,8.5,20,Asha,asha@example.com,98-76"), rejects);
+    }
+
+    @Test
+    void failedChunkIsRejectedAsAWhole() throws Exception {
+        InMemoryLoanStore failing = new InMemoryLoanStore() {
+            @Override
+            public synchronized void insertApplications(List<BorrowerDetails> borrowers, List<LoanDetails> loans) throws SQLException {
+                throw new SQLException("disk full");
+            }
+        };
+        IngestReport report = new LoanIngestor(failing, new HomeLoanCalculator()).ingest(csv(List.of(
+                "2500000,8.5,20,Asha,asha@example.com,9876543210",
+                "100000,9,5,Ravi,ravi@example.com,9876543211")), dir.resolve("rejects.tsv"));
+        assertEquals(0, report.rowsAccepted);
+        assertEquals(2, report.rowsRejected);
+        assertEquals("1\tdatabase: disk full\t2500000,8.5,20,Asha,asha@example.com,9876543210", rejects().get(0));
+    }
+
+    @Test
+    void fileLargerThanAChunkIsStoredInFull() throws Exception {
+        int rows = LoanIngestor.CHUNK_ROWS * 2 + 5;
+        List<String> lines = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            lines.add((100_000 + i) + ",8.5,20,Customer" + i + ",c" + i + "@example.com,98765" + i);
+        }
+        InMemoryLoanStore store = new InMemoryLoanStore();
+        IngestReport report = new LoanIngestor(store, new HomeLoanCalculator()).ingest(csv(lines), dir.resolve("rejects.tsv"));
+        assertEquals(rows, report.rowsAccepted);
+        long[] count = new long[1];
+        store.scanLoans(new LoanQueryFilter(), 10_000, loan -> count[0]++);
+        assertEquals(rows, count[0]);
+    }
+}
@@ -0,0 +1,127 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LoanManagementTest {
+    static LoanDetails loan(int loanId, double amount) {
+        return new LoanDetails(loanId, amount, 8.5, 20);
+    }
+
+    @Test
+    void firstQuoteForAnIdWins() {
+        LoanManagement history = new LoanManagement();
+        LoanDetails first = loan(7, 1_000_000);
+        history.addLoan(first);
+        history.addLoan(loan(7, 2_000_000));
+        assertSame(first, history.getLoanById(7));
+        assertEquals(2, history.size());
+    }
+
+    @Test
+    void removeLoanDropsEveryEntryForTheId() {
+        LoanManagement history = new LoanManagement(3);
+        for (int i = 1; i <= 5; i++) {
+            history.addLoan(loan(i, i));
+        }
+        history.addLoan(loan(3, 33));
+        history.addLoan(loan(5, 55));
+        assertEquals(2, history.removeLoan(3));
+        assertEquals(0, history.removeLoan(3));
+        assertNull(history.getLoanById(3));
+        assertEquals(5, history.size());
+        assertEquals(List.of(5, 5), ids(history.getRecentLoans()));
+        List<Integer> remaining = ids(history.getAllLoans());
+        remaining.sort(null);
+        assertEquals(List.of(1, 2, 4, 5, 5), remaining);
+    }
+
+    @Test
+    void viewsKeepTheirSnapshotAcrossRemovals() {
+        LoanManagement history = new LoanManagement();
+        for (int i = 1; i <= 4; i++) {
+            history.addLoan(loan(i, i));
+        }
+        List<LoanDetails> before = history.getAllLoans();
+        history.removeLoan(1);
+        history.addLoan(loan(9, 9));
+        history.removeLoans(new int[]{2, 9});
+        assertEquals(List.of(1, 2, 3, 4), ids(before));
+        List<LoanDetails> middle = history.getAllLoans();
+        history.removeLoan(4);
+        assertEquals(2, middle.size());
+        assertEquals(List.of(3), ids(history.getAllLoans()));
+    }
+
+    // Random adds and removals against a plain map of lists, so swap-removal and chain relinking are checked together.
+    @Test
+    void matchesAReferenceModel() {
+        Random random = new Random(42);
+        LoanManagement history = new LoanManagement(0);
+        Map<Integer, List<LoanDetails>> model = new HashMap<>();
+        int entries = 0;
+        for (int step = 0; step < 20_000; step++) {
+            int loanId = random.nextInt(200);
+            if (random.nextInt(3) > 0) {
+                LoanDetails added = loan(loanId, step);
+                history.addLoan(added);
+                model.computeIfAbsent(loanId, k -> new ArrayList<>()).add(added);
+                entries++;
+            } else {
+                List<LoanDetails> removed = model.remove(loanId);
+                int expected = removed == null ? 0 : removed.size();
+                assertEquals(expected, history.removeLoan(loanId));
+                entries -= expected;
+            }
+            if (step % 997 == 0) {
+                history.getAllLoans();
+            }
+        }
+        assertEquals(entries, history.size());
+        for (int loanId = 0; loanId < 200; loanId++) {
+            List<LoanDetails> expected = model.get(loanId);
+            assertSame(expected == null ? null : expected.get(0), history.getLoanById(loanId));
+        }
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (LoanDetails loan : history.getAllLoans()) {
+            counts.merge(loan.loanId, 1, Integer::sum);
+        }
+        model.forEach((loanId, loans) -> assertEquals(loans.size(), counts.get(loanId)));
+    }
+
+    @Test
+    void intMapRemovalKeepsCollidingKeysReachable() {
+        IntObjectMap<Integer> map = new IntObjectMap<>(4);
+        Map<Integer, Integer> model = new HashMap<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 50_000; step++) {
+            int key = random.nextInt(512) - 8;
+            if (random.nextBoolean()) {
+                Integer existing = map.putIfAbsent(key, step);
+                assertEquals(model.putIfAbsent(key, step), existing);
+            } else {
+                assertEquals(model.remove(key), map.remove(key));
+            }
+        }
+        assertEquals(model.size(), map.size());
+        for (int key = -8; key < 504; key++) {
+            assertEquals(model.get(key), map.get(key));
+        }
+    }
+
+    static List<Integer> ids(List<LoanDetails> loans) {
+        List<Integer> ids = new ArrayList<>();
+        for (LoanDetails loan : loans) {
+            ids.add(loan.loanId);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,70 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LoanProductsTest {
+    static final double TOLERANCE = 1e-6;
+    final HomeLoanCalculator calculator = new HomeLoanCalculator();
+
+    @Test
+    void standardProductMatchesTheCalculator() {
+        LoanProduct standard = LoanProducts.parse("standard");
+        assertSame(LoanProducts.STANDARD, standard);
+        assertEquals(calculator.calculateMonthlyPayment(2_500_000, 8.5, 20), standard.monthlyPayment(2_500_000, 8.5, 20), TOLERANCE);
+        assertEquals(calculator.calculateTotalInterest(2_500_000, 8.5, 20), standard.totalInterest(2_500_000, 8.5, 20), 1e-3);
+    }
+
+    @Test
+    void flatStepUpAndFloatingAreTheStandardAnnuity() {
+        double emi = LoanProducts.STANDARD.monthlyPayment(2_500_000, 8.5, 20);
+        double interest = LoanProducts.STANDARD.totalInterest(2_500_000, 8.5, 20);
+        for (String spec : new String[]{"step-up:0", "floating:12:8.5"}) {
+            LoanProduct product = LoanProducts.parse(spec);
+            assertEquals(emi, product.monthlyPayment(2_500_000, 8.5, 20), TOLERANCE, spec);
+            assertEquals(interest, product.totalInterest(2_500_000, 8.5, 20), 1e-3, spec);
+        }
+    }
+
+    @Test
+    void stepUpStartsLowerAndCostsMoreInterest() {
+        LoanProduct stepUp = LoanProducts.parse("step-up:5");
+        assertTrue(stepUp.monthlyPayment(2_500_000, 8.5, 20) < LoanProducts.STANDARD.monthlyPayment(2_500_000, 8.5, 20));
+        assertTrue(stepUp.totalInterest(2_500_000, 8.5, 20) > LoanProducts.STANDARD.totalInterest(2_500_000, 8.5, 20));
+    }
+
+    @Test
+    void everyScheduleClosesAtZeroAndAgreesWithTotalInterest() {
+        for (String spec : new String[]{"standard", "daily-reducing", "step-up:5", "floating:12:8.75,9.0,9.25,8.5"}) {
+            LoanProduct product = LoanProducts.parse(spec);
+            AmortizationSchedule schedule = product.fill(2_500_000, 8.5, 20, new AmortizationSchedule());
+            assertEquals(20 * product.periodsPerYear(), schedule.months, spec);
+            assertEquals(0, schedule.balance[schedule.months - 1], 1e-4, spec);
+            double interest = 0;
+            for (int i = 0; i < schedule.months; i++) {
+                interest += schedule.interest[i];
+            }
+            assertEquals(product.totalInterest(2_500_000, 8.5, 20), interest, 1e-2, spec);
+        }
+    }
+
+    @Test
+    void badSpecsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> LoanProducts.parse("fixed"));
+        assertThrows(IllegalArgumentException.class, () -> LoanProducts.parse("floating:12"));
+        assertThrows(IllegalArgumentException.class, () -> LoanProducts.parse("step-up:-100"));
+    }
+
+    @Test
+    void calculatorFollowsTheProductAndArithmetic() {
+        assertInstanceOf(HomeLoanCalculator.class, DatabaseManager.createCalculator("standard", ""));
+        assertInstanceOf(FixedPointLoanCalculator.class, DatabaseManager.createCalculator("standard", "fixed"));
+        assertInstanceOf(ProductLoanCalculator.class, DatabaseManager.createCalculator("step-up:5", ""));
+        assertThrows(IllegalArgumentException.class, () -> DatabaseManager.createCalculator("step-up:5", "fixed"));
+    }
+}
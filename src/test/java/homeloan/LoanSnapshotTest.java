@@ -0,0 +1,90 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LoanSnapshotTest {
+    @TempDir
+    Path dir;
+
+    static LoanDetails loan(int loanId) {
+        LoanDetails loan = new LoanDetails(loanId, 100_000 + loanId, 8.5, 20);
+        new HomeLoanCalculator().quote(loan);
+        return loan;
+    }
+
+    @Test
+    void rowsSurviveGrowingAndReopening() throws IOException {
+        Path path = dir.resolve("loans.snap");
+        try (LoanSnapshot snapshot = LoanSnapshot.create(path, 2)) {
+            for (int id = 1; id <= 100; id++) {
+                snapshot.append(loan(id));
+            }
+            assertEquals(100, snapshot.size());
+            assertTrue(snapshot.verify());
+        }
+        try (LoanSnapshot reopened = LoanSnapshot.open(path, false)) {
+            assertEquals(100, reopened.size());
+            for (int i = 0; i < 100; i++) {
+                LoanDetails expected = loan(i + 1);
+                LoanDetails actual = reopened.loan(i);
+                assertEquals(expected.loanId, actual.loanId);
+                assertEquals(expected.loanAmount, actual.loanAmount);
+                assertEquals(expected.monthlyPayment, actual.monthlyPayment);
+                assertEquals(expected.totalInterest, actual.totalInterest);
+            }
+        }
+    }
+
+    @Test
+    void corruptedRowFailsTheChecksum() throws IOException {
+        Path path = dir.resolve("corrupt.snap");
+        try (LoanSnapshot snapshot = LoanSnapshot.create(path, 4)) {
+            snapshot.append(loan(1));
+            snapshot.append(loan(2));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), LoanSnapshot.HEADER_BYTES + 3);
+        }
+        IOException e = assertThrows(IOException.class, () -> LoanSnapshot.open(path, false));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+    }
+
+    @Test
+    void truncatedFileIsRejected() throws IOException {
+        Path path = dir.resolve("truncated.snap");
+        try (LoanSnapshot snapshot = LoanSnapshot.create(path, 4)) {
+            snapshot.append(loan(1));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(LoanSnapshot.fileSize(4) - 1);
+        }
+        assertThrows(IOException.class, () -> LoanSnapshot.open(path, false));
+    }
+
+    // The writer reports a loan only after the store has kept it, so a repeated loan_id is never appended twice.
+    @Test
+    void onlyCommittedLoansAreReported() throws Exception {
+        List<Integer> reported = new ArrayList<>();
+        try (InMemoryLoanStore store = new InMemoryLoanStore();
+             WriteBehindWriter writer = new WriteBehindWriter(store, 16, 8, 10, loan -> reported.add(loan.loanId))) {
+            writer.enqueueLoan(loan(1));
+            writer.enqueueLoan(loan(2));
+            writer.enqueueLoan(loan(1));
+            writer.flush();
+            assertEquals(List.of(1, 2), reported);
+            assertEquals(1, writer.getRowsFailed());
+        }
+    }
+}
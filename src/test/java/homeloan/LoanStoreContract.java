@@ -0,0 +1,179 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// The same checks run against every LoanStore so the embedded store stays a drop-in for the database.
+abstract class LoanStoreContract {
+    LoanStore store;
+
+    abstract LoanStore createStore() throws Exception;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = createStore();
+        store.createSchema();
+        store.clear();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        store.clear();
+        store.close();
+    }
+
+    static LoanDetails loan(int loanId, double loanAmount, double interestRate, int tenureYears) {
+        LoanDetails loan = new LoanDetails(loanId, loanAmount, interestRate, tenureYears);
+        loan.monthlyPayment = 1234.56;
+        loan.totalInterest = 98765.43;
+        return loan;
+    }
+
+    static void assertSameLoan(LoanDetails expected, LoanDetails actual) {
+        assertNotNull(actual);
+        assertEquals(expected.loanId, actual.loanId);
+        assertEquals(expected.loanAmount, actual.loanAmount);
+        assertEquals(expected.interestRate, actual.interestRate);
+        assertEquals(expected.tenureYears, actual.tenureYears);
+        assertEquals(expected.monthlyPayment, actual.monthlyPayment);
+        assertEquals(expected.totalInterest, actual.totalInterest);
+    }
+
+    List<Integer> scanIds(LoanQueryFilter filter, int pageSize) throws Exception {
+        List<Integer> ids = new ArrayList<>();
+        store.scanLoans(filter, pageSize, loan -> ids.add(loan.loanId));
+        return ids;
+    }
+
+    @Test
+    void loanReadsBackUnchanged() throws Exception {
+        LoanDetails original = loan(101, 2_500_000.25, 8.125, 20);
+        store.insertBatch(Collections.singletonList(original), Collections.emptyList());
+        assertSameLoan(original, store.findLoan(101));
+        assertNull(store.findLoan(102));
+        store.findLoan(101).loanAmount = 1;
+        assertEquals(2_500_000.25, store.findLoan(101).loanAmount, "returned loan is not the stored instance");
+    }
+
+    @Test
+    void duplicateLoanFailsTheWholeBatch() throws Exception {
+        store.insertBatch(Collections.singletonList(loan(101, 1000, 7, 5)), Collections.emptyList());
+        assertThrows(SQLException.class,
+                () -> store.insertBatch(Arrays.asList(loan(103, 1000, 7, 5), loan(101, 1000, 7, 5)), Collections.emptyList()));
+        assertNull(store.findLoan(103), "a failed batch leaves none of its rows behind");
+    }
+
+    @Test
+    void borrowersGetGeneratedIds() throws Exception {
+        BorrowerDetails first = new BorrowerDetails(0, "Asha", "asha@example.com", "9000000001");
+        BorrowerDetails second = new BorrowerDetails(0, "Ravi", "ravi@example.com", "9000000002");
+        int firstId = store.insertBorrower(first);
+        int secondId = store.insertBorrower(second);
+        assertTrue(firstId > 0);
+        assertEquals(firstId, first.borrowerId);
+        assertTrue(secondId > firstId);
+        BorrowerDetails read = store.findBorrower(firstId);
+        assertEquals(firstId, read.borrowerId);
+        assertEquals("Asha", read.borrowerName);
+        assertEquals("asha@example.com", read.email);
+        assertEquals("9000000001", read.phoneNumber);
+        assertNull(store.findBorrower(secondId + 1000));
+    }
+
+    @Test
+    void applicationLoansTakeTheirCustomersIds() throws Exception {
+        List<BorrowerDetails> borrowers = Arrays.asList(new BorrowerDetails(0, "Meera", "m@example.com", "9000000003"),
+                new BorrowerDetails(0, "Kiran", "k@example.com", "9000000004"));
+        List<LoanDetails> loans = Arrays.asList(loan(0, 500_000, 9.5, 10), loan(0, 750_000, 9.75, 15));
+        store.insertApplications(borrowers, loans);
+        for (int i = 0; i < 2; i++) {
+            int id = borrowers.get(i).borrowerId;
+            assertTrue(id > 0);
+            assertEquals(id, loans.get(i).loanId);
+            assertSameLoan(loans.get(i), store.findLoan(id));
+            assertNotNull(store.findBorrower(id));
+        }
+    }
+
+    @Test
+    void scanIsOrderedAndFiltered() throws Exception {
+        store.insertBatch(Arrays.asList(loan(5003, 1000, 6.5, 5), loan(5001, 1000, 8.5, 20), loan(5002, 1000, 10.5, 30),
+                loan(101, 1000, 7, 5)), Collections.emptyList());
+        assertEquals(Arrays.asList(101, 5001, 5002, 5003), scanIds(new LoanQueryFilter(), 2));
+        assertEquals(Arrays.asList(5001, 5002), scanIds(new LoanQueryFilter().rateBetween(8, 11).tenureBetween(20, 30), 2));
+    }
+
+    // A page is read in full before its rows are handed out, and the next page starts after the last id seen: a row
+    // deleted from the current page is still delivered, while rows deleted or added further on are missed or seen.
+    @Test
+    void scanReadsOnePageAtATime() throws Exception {
+        List<LoanDetails> loans = new ArrayList<>();
+        for (int id = 1; id <= 6; id++) {
+            loans.add(loan(id, 1000, 7, 5));
+        }
+        store.insertBatch(loans, Collections.emptyList());
+        List<Integer> seen = new ArrayList<>();
+        store.scanLoans(new LoanQueryFilter(), 4, loan -> {
+            seen.add(loan.loanId);
+            if (loan.loanId == 1) {
+                try {
+                    store.deleteLoans(new int[]{3, 6});
+                    store.insertBatch(Collections.singletonList(loan(7, 1000, 7, 5)), Collections.emptyList());
+                } catch (SQLException | ClassNotFoundException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 7), seen);
+    }
+
+    @Test
+    void deleteRemovesTheLoanAndItsCustomer() throws Exception {
+        BorrowerDetails borrower = new BorrowerDetails(0, "Dev", "d@example.com", "9000000005");
+        LoanDetails loan = loan(0, 300_000, 7.25, 5);
+        store.insertApplications(Collections.singletonList(borrower), Collections.singletonList(loan));
+        assertEquals(1, store.deleteLoans(new int[]{loan.loanId, 999_999}), "only existing loans are counted");
+        assertNull(store.findLoan(loan.loanId));
+        assertNull(store.findBorrower(borrower.borrowerId), "the customer sharing the loan id goes with it");
+    }
+
+    @Test
+    void usersAreFoundByName() throws Exception {
+        int id = store.insertUser("priya", "secret-1");
+        assertTrue(id > 0);
+        int other = store.insertUser("other", "secret-1");
+        assertTrue(other > id, "passwords need not be unique");
+        List<LoanStore.UserRecord> users = store.findUsersByName("priya");
+        assertEquals(1, users.size());
+        assertEquals(id, users.get(0).id);
+        assertEquals("secret-1", users.get(0).password);
+        store.updatePassword(id, "secret-2");
+        assertEquals("secret-2", store.findUsersByName("priya").get(0).password);
+        assertTrue(store.findUsersByName("nobody").isEmpty());
+    }
+
+    @Test
+    void usersWithTheSameNameComeBackInIdOrder() throws Exception {
+        int first = store.insertUser("sam", "hash-1");
+        store.insertUser("alex", "hash-2");
+        int second = store.insertUser("sam", "hash-3");
+        List<LoanStore.UserRecord> users = store.findUsersByName("sam");
+        assertEquals(2, users.size());
+        assertEquals(first, users.get(0).id);
+        assertEquals(second, users.get(1).id);
+        store.clear();
+        assertTrue(store.findUsersByName("sam").isEmpty(), "clear empties the name index too");
+    }
+}
@@ -0,0 +1,58 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class MetricsTest {
+    static void assertTimed(LoanCalculator calculator) {
+        LatencyHistogram payments = HomeLoanCalculator.PAYMENT_TIMER.histogram;
+        LatencyHistogram schedules = HomeLoanCalculator.SCHEDULE_TIMER.histogram;
+        long paymentsBefore = payments.getCount();
+        long schedulesBefore = schedules.getCount();
+        calculator.calculateMonthlyPayment(2_500_000, 8.5, 20);
+        calculator.quote(new LoanDetails(1, 2_500_000, 8.5, 20));
+        calculator.fillAmortizationSchedule(2_500_000, 8.5, 20, new AmortizationSchedule(240));
+        assertTrue(payments.getCount() >= paymentsBefore + 2, calculator.getClass().getSimpleName());
+        assertTrue(schedules.getCount() >= schedulesBefore + 1, calculator.getClass().getSimpleName());
+    }
+
+    @Test
+    void everyCalculatorReportsUnderTheSameTimers() {
+        assertTrue(Metrics.ENABLED, "run with -Dhomeloan.metrics=true");
+        assertTimed(new HomeLoanCalculator());
+        assertTimed(new FixedPointLoanCalculator());
+        assertTimed(new ProductLoanCalculator(LoanProducts.STANDARD));
+        assertTimed(new ProductLoanCalculator(LoanProducts.parse("step-up:5")));
+    }
+
+    @Test
+    void percentilesStayWithinTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 10_000; nanos++) {
+            histogram.record(nanos * 1_000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMaxNanos());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            double exact = percentile * 100_000;
+            long reported = histogram.percentile(percentile);
+            assertTrue(reported >= exact && reported <= exact * 1.04, percentile + "th: " + reported);
+        }
+        assertEquals(10_000_000, histogram.percentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    @Test
+    void prometheusListsTimersAndGauges() {
+        Metrics.gauge("test.answer", () -> 42);
+        new HomeLoanCalculator().calculateMonthlyPayment(1_000_000, 9, 10);
+        String text = Metrics.prometheus();
+        assertTrue(text.contains("homeloan_operation_seconds_count{op=\"calc.calculateMonthlyPayment\"}"));
+        assertTrue(text.contains("homeloan_operation_errors_total{op=\"calc.fillAmortizationSchedule\"} "));
+        assertTrue(text.contains("# TYPE homeloan_test_answer gauge\nhomeloan_test_answer 42.0\n"));
+    }
+}
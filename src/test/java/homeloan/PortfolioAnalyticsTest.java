@@ -0,0 +1,78 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PortfolioAnalyticsTest {
+    static LoanBook book(int size) {
+        double[] amounts = new double[size];
+        double[] rates = new double[size];
+        int[] tenures = new int[size];
+        for (int i = 0; i < size; i++) {
+            amounts[i] = 100_000 + (i % 1000) * 5_000;
+            rates[i] = 6 + (i % 37) * 0.25;
+            tenures[i] = 1 + i % 45;
+        }
+        return new LoanBook(amounts, rates, tenures);
+    }
+
+    @Test
+    void parallelReportMatchesASingleLeaf() {
+        LoanBook book = book(PortfolioAnalytics.LEAF_SIZE * 4 + 123);
+        PortfolioReport parallel = PortfolioAnalytics.analyze(book, 10);
+        PortfolioReport sequential = PortfolioAnalytics.computeLeaf(book, 120, 0, book.size);
+        assertEquals(sequential.loanCount, parallel.loanCount);
+        assertEquals(sequential.totalPrincipal, parallel.totalPrincipal, 1e-3);
+        assertEquals(sequential.lifetimeInterest, parallel.lifetimeInterest, 1e-3);
+        assertArrayEquals(sequential.rateBucketCounts, parallel.rateBucketCounts);
+        assertArrayEquals(sequential.tenureCounts, parallel.tenureCounts);
+        for (int m = 0; m <= 120; m++) {
+            assertEquals(sequential.outstandingPrincipal[m], parallel.outstandingPrincipal[m], 1e-3);
+        }
+        for (int m = 0; m < 120; m++) {
+            assertEquals(sequential.interestIncome[m], parallel.interestIncome[m], 1e-3);
+        }
+    }
+
+    @Test
+    void singleLoanFollowsItsSchedule() {
+        LoanDetails loan = new LoanDetails(1, 2_500_000, 8.5, 20);
+        HomeLoanCalculator calculator = new HomeLoanCalculator();
+        AmortizationSchedule schedule = calculator.quote(loan, new AmortizationSchedule());
+        PortfolioReport report = PortfolioAnalytics.analyze(LoanBook.of(List.of(loan)), 25);
+        assertEquals(loan.monthlyPayment, report.totalMonthlyPayment, 1e-9);
+        assertEquals(loan.totalInterest, report.lifetimeInterest, 1e-6);
+        assertEquals(2_500_000, report.outstandingPrincipal[0]);
+        for (int m = 0; m < 240; m++) {
+            assertEquals(schedule.interest[m], report.interestIncome[m], 1e-6);
+            assertEquals(schedule.balance[m], report.outstandingPrincipal[m + 1], 1e-6);
+        }
+        assertEquals(0, report.outstandingPrincipal[240]);
+        assertEquals(0, report.outstandingPrincipal[300]);
+        assertEquals(loan.totalInterest, report.projectedInterestIncome(25), 1e-6);
+    }
+
+    @Test
+    void loansAreBucketedByRateAndTenure() {
+        LoanBook book = new LoanBook(new double[]{100, 200, 300, 400}, new double[]{8.25, 8.4, 35, 0}, new int[]{20, 20, 50, 1});
+        PortfolioReport report = PortfolioAnalytics.analyze(book, 1);
+        assertEquals(2, report.rateBucketCounts[16]);
+        assertEquals(300, report.rateBucketPrincipal[16]);
+        assertEquals(1, report.rateBucketCounts[PortfolioReport.RATE_BUCKETS - 1]);
+        assertEquals(1, report.rateBucketCounts[0]);
+        assertEquals(2, report.tenureCounts[20]);
+        assertEquals(1, report.tenureCounts[PortfolioReport.MAX_TENURE_YEARS]);
+        assertEquals(1, report.tenureCounts[1]);
+    }
+
+    @Test
+    void emptyBookGivesAnEmptyReport() {
+        PortfolioReport report = PortfolioAnalytics.analyze(LoanBook.of(List.of()), 5);
+        assertEquals(0, report.loanCount);
+        assertEquals(61, report.outstandingPrincipal.length);
+        assertEquals(0, report.projectedInterestIncome(5));
+    }
+}
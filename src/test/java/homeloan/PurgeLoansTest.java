@@ -0,0 +1,86 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PurgeLoansTest {
+    static final int LOANS = 10;
+
+    final DatabaseManager db = DatabaseManager.dbManager;
+    // Loan i (from 0) is at 8.5% when i is even and 10% when odd; each loan shares its id with its customer.
+    final int[] ids = new int[LOANS];
+
+    @BeforeEach
+    void fill() throws Exception {
+        LoanStore store = DatabaseManager.store();
+        store.createSchema();
+        store.clear();
+        List<BorrowerDetails> borrowers = new ArrayList<>();
+        List<LoanDetails> loans = new ArrayList<>();
+        for (int i = 0; i < LOANS; i++) {
+            borrowers.add(new BorrowerDetails(0, "customer-" + i, i + "@example.com", "90000000" + i));
+            loans.add(new LoanDetails(0, 100_000 * (i + 1), i % 2 == 0 ? 8.5 : 10, 20));
+        }
+        store.insertApplications(borrowers, loans);
+        for (int i = 0; i < LOANS; i++) {
+            ids[i] = loans.get(i).loanId;
+            DatabaseManager.loanManagement.addLoan(loans.get(i));
+        }
+    }
+
+    @AfterEach
+    void empty() throws Exception {
+        DatabaseManager.store().clear();
+        DatabaseManager.loanManagement.removeLoans(ids);
+    }
+
+    List<Integer> idsAt(int... indexes) {
+        List<Integer> stored = new ArrayList<>();
+        for (int i : indexes) {
+            stored.add(ids[i]);
+        }
+        return stored;
+    }
+
+    static List<Integer> storedIds() throws Exception {
+        List<Integer> stored = new ArrayList<>();
+        DatabaseManager.store().scanLoans(new LoanQueryFilter(), 4, loan -> stored.add(loan.loanId));
+        return stored;
+    }
+
+    @Test
+    void filteredPurgeRemovesOnlyMatchingLoansAcrossChunks() throws Exception {
+        assertNotNull(db.getLoanById(ids[2]));
+        long deleted = db.purgeLoans(new LoanQueryFilter().rateBetween(8, 9), loan -> loan.loanId != ids[4]);
+        assertEquals(4, deleted);
+        assertEquals(idsAt(1, 3, 4, 5, 7, 9), storedIds());
+        for (int i : new int[]{0, 2, 6, 8}) {
+            assertNull(db.getLoanById(ids[i]), "cached loan " + i);
+            assertNull(db.getCustomerById(ids[i]), "customer " + i);
+            assertNull(DatabaseManager.loanManagement.getLoanById(ids[i]), "history " + i);
+        }
+        assertNotNull(DatabaseManager.loanManagement.getLoanById(ids[4]));
+        assertNotNull(db.getCustomerById(ids[4]));
+    }
+
+    @Test
+    void purgeByIdCountsOnlyLoansThatExisted() throws Exception {
+        assertEquals(3, db.purgeLoans(new int[]{ids[1], ids[3], -1, ids[5]}));
+        assertEquals(idsAt(0, 2, 4, 6, 7, 8, 9), storedIds());
+        assertEquals(0, db.purgeLoans(new int[]{ids[1], ids[3]}));
+    }
+
+    @Test
+    void purgingEverythingLeavesAnEmptyStore() throws Exception {
+        assertEquals(LOANS, db.purgeLoans(new LoanQueryFilter()));
+        assertEquals(List.of(), storedIds());
+        assertEquals(0, DatabaseManager.loanManagement.size());
+    }
+}
@@ -0,0 +1,83 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class QuoteHttpServerTest {
+    final HttpClient client = HttpClient.newHttpClient();
+    QuoteHttpServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        SessionManager sessions = new SessionManager((name, password) -> "alice".equals(name) && "pw".equals(password) ? 7 : 0, 60_000);
+        server = new QuoteHttpServer(new QuoteService(null, new HomeLoanCalculator(), null, sessions), 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    HttpResponse<String> get(String pathAndQuery) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + pathAndQuery)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void loginReturnsATokenOnlyForValidCredentials() throws Exception {
+        HttpResponse<String> ok = get("/login?user=alice&password=pw");
+        assertEquals(200, ok.statusCode());
+        assertTrue(ok.body().contains("\"user_id\":7"), ok.body());
+        assertEquals(401, get("/login?user=alice&password=wrong").statusCode());
+    }
+
+    @Test
+    void badParametersAreClientErrors() throws Exception {
+        assertEquals(400, get("/grid?amounts=1000000").statusCode());
+        assertEquals(400, get("/grid?amounts=-1&rates=8.5&tenures=20").statusCode());
+    }
+
+    @Test
+    void gridIsServedAsJson() throws Exception {
+        HttpResponse<String> response = get("/grid?amounts=2500000&rates=8.5&tenures=20");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"monthly_payments\":[[[21695."), response.body());
+    }
+
+    @Test
+    void requestsAreServedConcurrently() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + "/health")).build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get().statusCode());
+        }
+    }
+
+    @Test
+    void requestExecutorRunsTasks() throws Exception {
+        ExecutorService executor = QuoteHttpServer.newRequestExecutor();
+        try {
+            Future<Integer> result = executor.submit(() -> 42);
+            assertEquals(42, result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ReadThroughCacheTest {
+    static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void secondReadIsServedFromTheCache() throws Exception {
+        ReadThroughCache<String> cache = new ReadThroughCache<>(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        ReadThroughCache.Loader<String> loader = key -> "loan-" + key + "-" + loads.incrementAndGet();
+        assertEquals("loan-1-1", cache.get(1, loader));
+        assertEquals("loan-1-1", cache.get(1, loader));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    void missingRowsAreNotCached() throws Exception {
+        ReadThroughCache<String> cache = new ReadThroughCache<>(10, 60_000);
+        assertNull(cache.get(1, key -> null));
+        assertEquals("found", cache.get(1, key -> "found"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() throws Exception {
+        ReadThroughCache<String> cache = new ReadThroughCache<>(2, 60_000);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.get(1, key -> "reloaded");
+        cache.put(3, "three");
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals("one", cache.get(1, key -> "reloaded"));
+        assertEquals("reloaded", cache.get(2, key -> "reloaded"));
+    }
+
+    @Test
+    void expiredEntriesAreReloaded() throws Exception {
+        ReadThroughCache<String> cache = new ReadThroughCache<>(10, 1);
+        cache.put(1, "old");
+        Thread.sleep(5);
+        assertEquals("new", cache.get(1, key -> "new"));
+        assertEquals(1, cache.getExpirations());
+    }
+
+    @Test
+    void invalidateWinsOverALoadInFlight() throws Exception {
+        ReadThroughCache<String> cache = new ReadThroughCache<>(10, 60_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        CompletableFuture<String> stale = CompletableFuture.supplyAsync(() -> {
+            try {
+                return cache.get(1, key -> {
+                    loading.countDown();
+                    await(invalidated);
+                    return "before update";
+                });
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        loading.await(5, TimeUnit.SECONDS);
+        cache.invalidate(1);
+        invalidated.countDown();
+        assertEquals("before update", stale.get(5, TimeUnit.SECONDS));
+        assertEquals(0, cache.size());
+        assertEquals("after update", cache.get(1, key -> "after update"));
+    }
+
+    @Test
+    void invalidateAllDropsEverything() throws Exception {
+        ReadThroughCache<String> cache = new ReadThroughCache<>(10, 60_000);
+        cache.put(1, "one");
+        cache.put(2, "two");
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+        assertEquals("fresh", cache.get(2, key -> "fresh"));
+    }
+}
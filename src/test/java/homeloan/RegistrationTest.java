@@ -0,0 +1,68 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import org.junit.jupiter.api.Test;
+
+class RegistrationTest {
+    final LoanStore store = DatabaseManager.store();
+
+    @Test
+    void registeredUsersLogInWithAHashedPassword() throws Exception {
+        int userId = DatabaseManager.dbManager.registerUser("asha", "s3cret", "asha@example.com", "9876543210");
+        assertTrue(userId > 0);
+        String stored = store.findUsersByName("asha").get(0).password;
+        assertTrue(stored.startsWith(PasswordHasher.PREFIX));
+        assertFalse(stored.contains("s3cret"));
+        assertEquals(userId, DatabaseManager.dbManager.checkLoanId("asha", "s3cret"));
+        assertEquals(0, DatabaseManager.dbManager.checkLoanId("asha", "wrong"));
+    }
+
+    @Test
+    void failedCustomerInsertCreatesNoUser() throws Exception {
+        DatabaseManager failing = new DatabaseManager() {
+            @Override
+            public int insertBorrower(String borrowerName, String email, String phoneNumber) throws SQLException {
+                throw new SQLException("customer table is read-only");
+            }
+        };
+        assertEquals(0, failing.registerUser("ravi", "pw", "ravi@example.com", "9876543211"));
+        assertTrue(store.findUsersByName("ravi").isEmpty());
+
+        DatabaseManager noKey = new DatabaseManager() {
+            @Override
+            public int insertBorrower(String borrowerName, String email, String phoneNumber) {
+                return 0;
+            }
+        };
+        assertEquals(0, noKey.registerUser("meena", "pw", "meena@example.com", "9876543212"));
+        assertTrue(store.findUsersByName("meena").isEmpty());
+    }
+
+    @Test
+    void hashesAreSaltedAndVerifyOnlyTheirPassword() {
+        String first = PasswordHasher.hash("password");
+        String second = PasswordHasher.hash("password");
+        assertNotEquals(first, second);
+        assertTrue(PasswordHasher.verify("password", first));
+        assertTrue(PasswordHasher.verify("password", second));
+        assertFalse(PasswordHasher.verify("Password", first));
+        assertFalse(PasswordHasher.verify("password", null));
+        assertFalse(PasswordHasher.verify("password", PasswordHasher.PREFIX + "1$broken"));
+        assertFalse(PasswordHasher.needsRehash(first));
+        assertTrue(first.length() <= PasswordHasher.STORED_LENGTH);
+    }
+
+    @Test
+    void plaintextPasswordsAreRehashedOnLogin() throws Exception {
+        int userId = store.insertUser("legacy", "old-password");
+        assertEquals(userId, DatabaseManager.dbManager.checkLoanId("legacy", "old-password"));
+        String stored = store.findUsersByName("legacy").get(0).password;
+        assertFalse(PasswordHasher.needsRehash(stored));
+        assertEquals(userId, DatabaseManager.dbManager.checkLoanId("legacy", "old-password"));
+    }
+}
@@ -0,0 +1,68 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SessionManagerTest {
+    final AtomicInteger checks = new AtomicInteger();
+    // "admin" is user 1, "asha" user 7; any other password is wrong.
+    final SessionManager.Authenticator authenticator = (name, password) -> {
+        checks.incrementAndGet();
+        if (!password.equals("pw")) {
+            return 0;
+        }
+        return name.equals("admin") ? SessionManager.ADMIN_USER_ID : 7;
+    };
+
+    @Test
+    void tokenIsCheckedWithoutAuthenticatingAgain() throws Exception {
+        SessionManager sessions = new SessionManager(authenticator, 60_000);
+        SessionManager.Session session = sessions.login("asha", "pw");
+        assertEquals(7, session.userId);
+        assertEquals(SessionManager.Role.USER, session.role);
+        for (int i = 0; i < 100; i++) {
+            assertSame(session, sessions.get(session.token));
+        }
+        assertEquals(1, checks.get());
+    }
+
+    @Test
+    void wrongPasswordGetsNoSession() throws Exception {
+        SessionManager sessions = new SessionManager(authenticator, 60_000);
+        assertNull(sessions.login("asha", "wrong"));
+        assertEquals(0, sessions.size());
+        assertNull(sessions.get(null));
+        assertNull(sessions.get("made-up"));
+    }
+
+    @Test
+    void firstUserIsTheAdministrator() throws Exception {
+        SessionManager sessions = new SessionManager(authenticator, 60_000);
+        SessionManager.Session admin = sessions.login("admin", "pw");
+        SessionManager.Session other = sessions.login("admin", "pw");
+        assertEquals(SessionManager.Role.ADMIN, admin.role);
+        assertNotEquals(admin.token, other.token);
+    }
+
+    @Test
+    void logoutAndExpiryEndTheSession() throws Exception {
+        SessionManager sessions = new SessionManager(authenticator, 60_000);
+        SessionManager.Session session = sessions.login("asha", "pw");
+        sessions.logout(session.token);
+        assertNull(sessions.get(session.token));
+
+        SessionManager shortLived = new SessionManager(authenticator, 1);
+        SessionManager.Session expiring = shortLived.login("asha", "pw");
+        Thread.sleep(5);
+        assertNull(shortLived.get(expiring.token));
+        shortLived.login("asha", "pw");
+        Thread.sleep(5);
+        shortLived.purgeExpired();
+        assertEquals(0, shortLived.size());
+    }
+}
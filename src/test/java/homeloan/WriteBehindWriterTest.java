@@ -0,0 +1,68 @@
+package homeloan;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+
+class WriteBehindWriterTest {
+    static LoanDetails loan(int loanId) {
+        LoanDetails loan = new LoanDetails(loanId, 250_000, 8.5, 20);
+        new HomeLoanCalculator().quote(loan);
+        return loan;
+    }
+
+    @Test
+    void aRejectedRowDoesNotDropItsBatch() throws Exception {
+        InMemoryLoanStore store = new InMemoryLoanStore();
+        store.insertBatch(List.of(loan(2)), List.of());
+        List<Integer> reported = new CopyOnWriteArrayList<>();
+        try (WriteBehindWriter writer = new WriteBehindWriter(store, 16, 8, 1_000, loan -> reported.add(loan.loanId))) {
+            for (int id = 1; id <= 3; id++) {
+                writer.enqueueLoan(loan(id));
+            }
+            writer.flush();
+            assertEquals(2, writer.getRowsWritten());
+            assertEquals(1, writer.getRowsFailed());
+        }
+        assertEquals(List.of(1, 3), reported);
+        assertNotNull(store.findLoan(1));
+        assertNotNull(store.findLoan(3));
+    }
+
+    @Test
+    void queuedLoansAreReadableUntilCommitted() throws Exception {
+        InMemoryLoanStore store = new InMemoryLoanStore();
+        try (WriteBehindWriter writer = new WriteBehindWriter(store, 16, 8, 1_000)) {
+            LoanDetails queued = loan(7);
+            writer.enqueueLoan(queued);
+            LoanDetails pending = writer.getPendingLoan(7);
+            if (pending != null) {
+                assertSame(queued, pending);
+            }
+            writer.flush();
+            assertNull(writer.getPendingLoan(7));
+            assertNotNull(store.findLoan(7));
+        }
+    }
+
+    @Test
+    void closeDrainsTheQueueAndRefusesNewWrites() throws Exception {
+        InMemoryLoanStore store = new InMemoryLoanStore();
+        WriteBehindWriter writer = new WriteBehindWriter(store, 64, 4, 50);
+        for (int id = 1; id <= 10; id++) {
+            writer.enqueueLoan(loan(id));
+        }
+        writer.close();
+        assertEquals(10, writer.getRowsWritten());
+        for (int id = 1; id <= 10; id++) {
+            assertNotNull(store.findLoan(id));
+        }
+        assertThrows(IllegalStateException.class, () -> writer.enqueueLoan(loan(11)));
+    }
+}